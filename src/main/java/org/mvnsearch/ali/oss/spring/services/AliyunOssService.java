@@ -3,11 +3,14 @@ package org.mvnsearch.ali.oss.spring.services;
 import com.aliyun.oss.OSSClient;
 import com.aliyun.oss.model.Bucket;
 import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.OSSObjectSummary;
 import com.aliyun.oss.model.ObjectListing;
 import com.aliyun.oss.model.ObjectMetadata;
+import org.apache.http.pool.PoolStats;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * aliyun OSS service
@@ -20,6 +23,13 @@ public interface AliyunOssService {
      */
     Integer MAX_OBJECTS = 500;
 
+    /**
+     * object summary consumer for listing
+     */
+    interface ObjectSummaryConsumer {
+        void accept(OSSObjectSummary objectSummary) throws Exception;
+    }
+
     /**
      * refresh token
      */
@@ -33,12 +43,20 @@ public interface AliyunOssService {
     OSSClient getOssClient();
 
     /**
-     * create bucket
+     * get connection pool stats of oss client
+     *
+     * @return pool stats, total first and then every route
+     */
+    Map<String, PoolStats> getConnectionPoolStats();
+
+    /**
+     * create bucket in region of endpoint
      *
      * @param bucket bucket name
+     * @return created bucket with region and creation date
      * @throws Exception exception
      */
-    void createBucket(String bucket) throws Exception;
+    Bucket createBucket(String bucket) throws Exception;
 
     /**
      * drop bucket
@@ -112,6 +130,40 @@ public interface AliyunOssService {
      */
     ObjectListing list(String bucketName, String path, int maxResults) throws Exception;
 
+    /**
+     * list children recurly from marker, used for pagination
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param marker     marker, next marker of previous listing
+     * @param maxResults max results
+     * @return object listing
+     * @throws Exception exception
+     */
+    ObjectListing list(String bucketName, String path, @Nullable String marker, int maxResults) throws Exception;
+
+    /**
+     * list children recurly page by page, pages are loaded lazily while iterating
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param pageSize   max keys for one page
+     * @return object listing pages
+     */
+    Iterable<ObjectListing> listPages(String bucketName, String path, int pageSize);
+
+    /**
+     * list all objects under path recursively: top-level prefixes are discovered first and listed concurrently
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param ordered    ordered mark: if true, consumer is invoked in key order from caller thread,
+     *                   otherwise it is invoked concurrently and should be thread safe
+     * @param consumer   object summary consumer
+     * @throws Exception exception
+     */
+    void listAll(String bucketName, String path, boolean ordered, ObjectSummaryConsumer consumer) throws Exception;
+
     /**
      * list children only
      *
@@ -132,6 +184,40 @@ public interface AliyunOssService {
      */
     ObjectListing listChildren(String bucketName, String path, int maxResults) throws Exception;
 
+    /**
+     * list children only from marker, used for pagination
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param marker     marker, next marker of previous listing
+     * @param maxResults max results
+     * @return object listing
+     * @throws Exception exception
+     */
+    ObjectListing listChildren(String bucketName, String path, @Nullable String marker, int maxResults) throws Exception;
+
+    /**
+     * list children only page by page, pages are loaded lazily while iterating
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param pageSize   max keys for one page
+     * @return object listing pages
+     */
+    Iterable<ObjectListing> listChildrenPages(String bucketName, String path, int pageSize);
+
+    /**
+     * list children by raw prefix with delimiter, the prefix is not normalized as directory,
+     * so "logs/app" lists "logs/app.log" and "logs/app-2023/"
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param maxResults max results
+     * @return object listing
+     * @throws Exception exception
+     */
+    ObjectListing listChildrenByPrefix(String bucketName, String prefix, int maxResults) throws Exception;
+
     /**
      * put local file to OSS
      *
@@ -150,6 +236,16 @@ public interface AliyunOssService {
      */
     ObjectMetadata put(String sourceFilePath, OSSUri destObject, Boolean zip) throws Exception;
 
+    /**
+     * put local file to OSS with transfer options
+     *
+     * @param sourceFilePath source file path on local disk
+     * @param destObject     dest object
+     * @param options        transfer options
+     * @return oss file path
+     */
+    ObjectMetadata put(String sourceFilePath, OSSUri destObject, TransferOptions options) throws Exception;
+
     /**
      * copy object
      *
@@ -160,6 +256,17 @@ public interface AliyunOssService {
      */
     String copy(OSSUri sourceObjectUri, OSSUri destObjectUri) throws Exception;
 
+    /**
+     * copy object with known size, objects above copy threshold are copied with multipart copy
+     *
+     * @param sourceObjectUri source object uri
+     * @param destObjectUri   dest object uri
+     * @param objectSize      source object size
+     * @return new file path
+     * @throws Exception exception
+     */
+    String copy(OSSUri sourceObjectUri, OSSUri destObjectUri, long objectSize) throws Exception;
+
     /**
      * get file and save into local disk
      *
@@ -169,6 +276,16 @@ public interface AliyunOssService {
      */
     String get(OSSUri objectUri, String destFilePath) throws Exception;
 
+    /**
+     * get file and save into local disk with transfer options
+     *
+     * @param objectUri    object uri
+     * @param destFilePath dest file path
+     * @param options      transfer options
+     * @return local file path
+     */
+    String get(OSSUri objectUri, String destFilePath, TransferOptions options) throws Exception;
+
     /**
      * delete object
      *
@@ -177,6 +294,16 @@ public interface AliyunOssService {
      */
     void delete(OSSUri objectUri) throws Exception;
 
+    /**
+     * delete objects with one DeleteObjects request
+     *
+     * @param bucketName bucket name
+     * @param keys       object keys, max 1000
+     * @return deleted count
+     * @throws Exception exception
+     */
+    int delete(String bucketName, List<String> keys) throws Exception;
+
     /**
      * get oss object
      *
@@ -197,11 +324,24 @@ public interface AliyunOssService {
     OSSObject getOssObject(OSSUri objectUri) throws Exception;
 
     /**
-     * set object meta data
+     * set object meta data, object is not rewritten if the value is already set
      *
      * @param objectUri object uri
      * @param key       key
      * @param value     value
+     * @return updated mark
+     */
+    boolean setObjectMetadata(OSSUri objectUri, String key, String value) throws Exception;
+
+    /**
+     * set object meta data with current metadata got by caller, such as HEAD by async service
+     *
+     * @param objectUri      object uri
+     * @param objectMetadata current object metadata
+     * @param key            key
+     * @param value          value
+     * @return updated mark
+     * @throws Exception exception
      */
-    void setObjectMetadata(OSSUri objectUri, String key, String value) throws Exception;
+    boolean setObjectMetadata(OSSUri objectUri, ObjectMetadata objectMetadata, String key, String value) throws Exception;
 }
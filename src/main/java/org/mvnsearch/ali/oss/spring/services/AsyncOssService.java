@@ -0,0 +1,69 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectListing;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * asynchronous OSS service on non-blocking HTTP transport, many requests can be in flight from a few threads.
+ * failed futures are completed with OSSException for OSS errors and ClientException for transport errors
+ *
+ * @author linux_china
+ */
+public interface AsyncOssService {
+
+    /**
+     * access info or transport config changed: cached signer is dropped and HTTP client is rebuilt,
+     * requests in flight are completed on previous client
+     */
+    void refresh();
+
+    /**
+     * list objects
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param delimiter  delimiter, null for recursive listing
+     * @param marker     marker, null for first page
+     * @param maxResults max results
+     * @return object listing
+     */
+    CompletableFuture<ObjectListing> list(String bucketName, String prefix, @Nullable String delimiter, @Nullable String marker, int maxResults);
+
+    /**
+     * get object metadata with HEAD request
+     *
+     * @param objectUri object uri
+     * @return object metadata, null if object not found
+     */
+    CompletableFuture<ObjectMetadata> getObjectMetadata(OSSUri objectUri);
+
+    /**
+     * get object, content should be closed by caller
+     *
+     * @param objectUri object uri
+     * @return oss object
+     */
+    CompletableFuture<OSSObject> getOssObject(OSSUri objectUri);
+
+    /**
+     * put object
+     *
+     * @param destObject     dest object
+     * @param content        content
+     * @param objectMetadata object metadata
+     * @return ETag
+     */
+    CompletableFuture<String> put(OSSUri destObject, byte[] content, ObjectMetadata objectMetadata);
+
+    /**
+     * delete object
+     *
+     * @param objectUri object uri
+     * @return completion
+     */
+    CompletableFuture<Void> delete(OSSUri objectUri);
+}
@@ -0,0 +1,122 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * batch deleter: keys are collected into DeleteObjects batches of up to 1000 keys,
+ * and several batches are deleted concurrently. Keys can be added from multiple threads
+ *
+ * @author linux_china
+ */
+public class BatchDeleter implements AutoCloseable {
+    /**
+     * max keys for one DeleteObjects request
+     */
+    public static final int BATCH_SIZE = 1000;
+    /**
+     * aliyun oss service
+     */
+    private final AliyunOssService aliyunOssService;
+    /**
+     * bucket name
+     */
+    private final String bucketName;
+    /**
+     * quiet mode, no output for every deleted object
+     */
+    private final boolean quiet;
+    /**
+     * executor
+     */
+    private final BoundedExecutor executor;
+    /**
+     * current batch
+     */
+    private List<String> batch = new ArrayList<>(BATCH_SIZE);
+    /**
+     * deleted count
+     */
+    private final AtomicLong deleted = new AtomicLong();
+
+    /**
+     * construct method
+     *
+     * @param aliyunOssService aliyun oss service
+     * @param bucketName       bucket name
+     * @param parallel         batches in flight
+     * @param quiet            quiet mode
+     */
+    public BatchDeleter(AliyunOssService aliyunOssService, String bucketName, int parallel, boolean quiet) {
+        this.aliyunOssService = aliyunOssService;
+        this.bucketName = bucketName;
+        this.quiet = quiet;
+        this.executor = new BoundedExecutor("oss-delete", parallel);
+    }
+
+    /**
+     * add key to delete
+     *
+     * @param key object key
+     * @throws Exception exception
+     */
+    public synchronized void add(String key) throws Exception {
+        batch.add(key);
+        if (batch.size() >= BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * submit current batch
+     *
+     * @throws Exception exception
+     */
+    private void flush() throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<String> keys = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+        executor.submit(() -> {
+            deleted.addAndGet(aliyunOssService.delete(bucketName, keys));
+            if (!quiet) {
+                for (String key : keys) {
+                    System.out.println("Deleted: " + OSSUri.PROTOCOL + bucketName + "/" + key);
+                }
+            }
+        });
+    }
+
+    /**
+     * delete remaining keys and wait all batches
+     *
+     * @return deleted object count
+     * @throws Exception exception
+     */
+    public long finish() throws Exception {
+        synchronized (this) {
+            flush();
+        }
+        executor.await();
+        return deleted.get();
+    }
+
+    /**
+     * deleted count so far
+     *
+     * @return deleted count
+     */
+    public long getDeleted() {
+        return deleted.get();
+    }
+
+    /**
+     * shutdown executor
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,122 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * bounded executor: submit blocks when max in-flight tasks reached, first failure is kept and re-thrown by await
+ *
+ * @author linux_china
+ */
+public class BoundedExecutor implements AutoCloseable {
+    /**
+     * task which can throw exception
+     */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * executor service
+     */
+    private final ExecutorService executor;
+    /**
+     * in-flight permits
+     */
+    private final Semaphore permits;
+    /**
+     * max in-flight tasks
+     */
+    private final int maxInFlight;
+    /**
+     * first failure
+     */
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    /**
+     * construct method, in-flight tasks are bounded by thread count
+     *
+     * @param name    thread name prefix
+     * @param threads thread count
+     */
+    public BoundedExecutor(String name, int threads) {
+        this(name, threads, threads);
+    }
+
+    /**
+     * construct method
+     *
+     * @param name        thread name prefix
+     * @param threads     thread count
+     * @param maxInFlight max in-flight tasks, including queued tasks
+     */
+    public BoundedExecutor(String name, int threads, int maxInFlight) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxInFlight = Math.max(maxInFlight, threads);
+        this.permits = new Semaphore(this.maxInFlight);
+    }
+
+    /**
+     * submit task, block if max in-flight tasks reached
+     *
+     * @param task task
+     * @throws Exception first failure of previous tasks
+     */
+    public void submit(Task task) throws Exception {
+        checkFailure();
+        permits.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (failure.get() == null) {
+                        task.run();
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * wait all submitted tasks to finish
+     *
+     * @throws Exception first failure
+     */
+    public void await() throws Exception {
+        permits.acquire(maxInFlight);
+        permits.release(maxInFlight);
+        checkFailure();
+    }
+
+    /**
+     * throw first failure if present
+     *
+     * @throws Exception first failure
+     */
+    private void checkFailure() throws Exception {
+        Exception e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * shutdown executor
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
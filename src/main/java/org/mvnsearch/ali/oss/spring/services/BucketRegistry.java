@@ -0,0 +1,68 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.model.Bucket;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * bucket registry: bucket metadata is cached and refreshed asynchronously after TTL,
+ * so bucket operations and completion don't list all buckets every time
+ *
+ * @author linux_china
+ */
+public interface BucketRegistry {
+
+    /**
+     * get buckets sorted by name, loaded synchronously only if never loaded
+     *
+     * @return buckets
+     * @throws Exception exception
+     */
+    List<Bucket> getBuckets() throws Exception;
+
+    /**
+     * reload buckets synchronously, used after access info changed
+     *
+     * @return buckets sorted by name
+     * @throws Exception exception
+     */
+    List<Bucket> reload() throws Exception;
+
+    /**
+     * get bucket by name, registry is reloaded once if bucket absent and registry is stale
+     *
+     * @param name bucket name
+     * @return bucket with region and creation date, null if not found
+     * @throws Exception exception
+     */
+    @Nullable
+    Bucket getBucket(String name) throws Exception;
+
+    /**
+     * get cached bucket names without blocking, used by completion
+     *
+     * @return bucket names
+     */
+    Set<String> getBucketNames();
+
+    /**
+     * bucket created
+     *
+     * @param bucket bucket
+     */
+    void add(Bucket bucket);
+
+    /**
+     * bucket dropped
+     *
+     * @param name bucket name
+     */
+    void remove(String name);
+
+    /**
+     * reload buckets in background, used on startup
+     */
+    void refreshAsync();
+}
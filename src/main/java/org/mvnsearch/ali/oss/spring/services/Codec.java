@@ -0,0 +1,38 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * content codec for stored objects, codec name is recorded as object's Content-Encoding
+ *
+ * @author linux_china
+ */
+public interface Codec {
+
+    /**
+     * get codec name, same as Content-Encoding token, such as gzip, zstd or br
+     *
+     * @return codec name
+     */
+    String getName();
+
+    /**
+     * encode plain content on read
+     *
+     * @param plainInput plain input stream
+     * @param length     plain content length, -1 if unknown
+     * @return encoded stream
+     * @throws IOException exception
+     */
+    InputStream encode(InputStream plainInput, long length) throws IOException;
+
+    /**
+     * decode encoded content on read
+     *
+     * @param encodedInput encoded input stream
+     * @return plain stream
+     * @throws IOException exception
+     */
+    InputStream decode(InputStream encodedInput) throws IOException;
+}
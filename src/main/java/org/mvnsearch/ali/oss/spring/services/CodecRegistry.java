@@ -0,0 +1,29 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+
+/**
+ * codec registry
+ *
+ * @author linux_china
+ */
+public interface CodecRegistry {
+
+    /**
+     * get codec by name or Content-Encoding
+     *
+     * @param name codec name, case insensitive
+     * @return codec, null if not supported
+     */
+    @Nullable
+    Codec getCodec(@Nullable String name);
+
+    /**
+     * get supported codec names
+     *
+     * @return codec names
+     */
+    Set<String> getNames();
+}
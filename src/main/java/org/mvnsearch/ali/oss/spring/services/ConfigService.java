@@ -2,6 +2,8 @@ package org.mvnsearch.ali.oss.spring.services;
 
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+
 /**
  * config service
  *
@@ -38,6 +40,13 @@ public interface ConfigService {
      */
     public String getRepository();
 
+    /**
+     * get work directory for transfer state such as checkpoints, located in user home
+     *
+     * @return work directory
+     */
+    File getWorkDirectory();
+
     /**
      * get configuration
      *
@@ -46,6 +55,15 @@ public interface ConfigService {
      */
     String getProperty(String key);
 
+    /**
+     * get configuration as long value
+     *
+     * @param key          key
+     * @param defaultValue default value if absent or not a number
+     * @return value
+     */
+    long getLongProperty(String key, long defaultValue);
+
     /**
      * update config
      *
@@ -0,0 +1,104 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.common.utils.CRC64;
+import org.apache.commons.codec.binary.Hex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * file hashes: MD5 and CRC64 (ECMA, same as x-oss-hash-crc64ecma) computed in one pass
+ *
+ * @author linux_china
+ */
+public class FileHashes {
+    /**
+     * files larger than this threshold are memory-mapped, 4M
+     */
+    private static final long MMAP_THRESHOLD = 4 * 1024 * 1024L;
+    /**
+     * mapped region size, 64M
+     */
+    private static final long MAP_SIZE = 64 * 1024 * 1024L;
+    /**
+     * buffer size
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * MD5 digest
+     */
+    private final byte[] md5;
+    /**
+     * CRC64 value
+     */
+    private final long crc64;
+
+    /**
+     * construct method
+     *
+     * @param md5   MD5 digest
+     * @param crc64 CRC64 value
+     */
+    public FileHashes(byte[] md5, long crc64) {
+        this.md5 = md5;
+        this.crc64 = crc64;
+    }
+
+    public byte[] getMd5() {
+        return md5;
+    }
+
+    public long getCrc64() {
+        return crc64;
+    }
+
+    /**
+     * MD5 in hex, same as ETag of object uploaded with single put
+     *
+     * @return MD5 hex
+     */
+    public String getMd5Hex() {
+        return Hex.encodeHexString(md5, false);
+    }
+
+    /**
+     * compute hashes of file
+     *
+     * @param file file
+     * @return file hashes
+     * @throws Exception exception
+     */
+    public static FileHashes of(File file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        CRC64 crc64 = new CRC64();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long length = file.length();
+        if (length > MMAP_THRESHOLD) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                for (long position = 0; position < length; position += MAP_SIZE) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, length - position));
+                    while (mapped.hasRemaining()) {
+                        int count = Math.min(buffer.length, mapped.remaining());
+                        mapped.get(buffer, 0, count);
+                        digest.update(buffer, 0, count);
+                        crc64.update(buffer, count);
+                    }
+                }
+            }
+        } else {
+            try (InputStream input = new FileInputStream(file)) {
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    digest.update(buffer, 0, count);
+                    crc64.update(buffer, count);
+                }
+            }
+        }
+        return new FileHashes(digest.digest(), crc64.getValue());
+    }
+}
@@ -0,0 +1,55 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.model.ObjectListing;
+
+import java.util.List;
+
+/**
+ * listing cache for interactive browsing: delimiter listings are cached by prefix with TTL and LRU eviction,
+ * shared by completion, ls and cd
+ *
+ * @author linux_china
+ */
+public interface ListingCache {
+
+    /**
+     * get delimiter listing of prefix: fresh entry is returned directly, stale entry is returned and refreshed
+     * asynchronously only if stale allowed, narrower prefix is answered from a complete cached listing of wider prefix in same directory
+     *
+     * @param bucketName bucket name
+     * @param prefix     raw prefix, such as "logs/" or "logs/app"
+     * @param allowStale serve stale entry, such as completion, ls should see fresh listing
+     * @return object listing, first page only
+     * @throws Exception exception
+     */
+    ObjectListing getListing(String bucketName, String prefix, boolean allowStale) throws Exception;
+
+    /**
+     * load listing of prefix in background if it is absent or stale
+     *
+     * @param bucketName bucket name
+     * @param prefix     raw prefix
+     */
+    void refreshAsync(String bucketName, String prefix);
+
+    /**
+     * prefetch listings of prefixes in background with bounded concurrency, such as common prefixes just displayed
+     *
+     * @param bucketName bucket name
+     * @param prefixes   prefixes
+     */
+    void prefetch(String bucketName, List<String> prefixes);
+
+    /**
+     * invalidate cached listings affected by mutation of key or prefix
+     *
+     * @param bucketName bucket name
+     * @param key        mutated object key or prefix
+     */
+    void invalidate(String bucketName, String key);
+
+    /**
+     * invalidate all cached listings
+     */
+    void clear();
+}
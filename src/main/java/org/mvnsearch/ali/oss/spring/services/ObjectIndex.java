@@ -0,0 +1,95 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * in-memory index of remote objects: key -> size, last modified time and ETag
+ *
+ * @author linux_china
+ */
+public class ObjectIndex {
+    /**
+     * indexed object
+     */
+    public static class Entry {
+        /**
+         * object size
+         */
+        private final long size;
+        /**
+         * last modified time
+         */
+        private final long lastModified;
+        /**
+         * ETag
+         */
+        private final String etag;
+
+        public Entry(long size, long lastModified, String etag) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.etag = etag;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+
+    /**
+     * entries
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * add object summary
+     *
+     * @param objectSummary object summary
+     */
+    public void add(OSSObjectSummary objectSummary) {
+        long lastModified = objectSummary.getLastModified() == null ? 0 : objectSummary.getLastModified().getTime();
+        entries.put(objectSummary.getKey(), new Entry(objectSummary.getSize(), lastModified, objectSummary.getETag()));
+    }
+
+    /**
+     * get entry by key
+     *
+     * @param key object key
+     * @return entry
+     */
+    @Nullable
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * contains key or not
+     *
+     * @param key object key
+     * @return contained mark
+     */
+    public boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * indexed object count
+     *
+     * @return count
+     */
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,75 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.model.ObjectListing;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * lazy paginated listing: next page is requested with the previous page's next marker
+ * only when iterated, so memory is constant regardless of prefix size
+ *
+ * @author linux_china
+ */
+public class ObjectListingPages implements Iterable<ObjectListing> {
+    /**
+     * page loader
+     */
+    public interface PageLoader {
+        /**
+         * load page from marker
+         *
+         * @param marker marker, null for first page
+         * @return object listing
+         * @throws Exception exception
+         */
+        ObjectListing load(@Nullable String marker) throws Exception;
+    }
+
+    /**
+     * page loader
+     */
+    private final PageLoader pageLoader;
+
+    /**
+     * construct method
+     *
+     * @param pageLoader page loader
+     */
+    public ObjectListingPages(PageLoader pageLoader) {
+        this.pageLoader = pageLoader;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<ObjectListing> iterator() {
+        return new Iterator<>() {
+            /**
+             * last loaded page
+             */
+            private ObjectListing last;
+
+            @Override
+            public boolean hasNext() {
+                return last == null || last.isTruncated();
+            }
+
+            @Override
+            public ObjectListing next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    last = pageLoader.load(last == null ? null : last.getNextMarker());
+                    return last;
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+        };
+    }
+}
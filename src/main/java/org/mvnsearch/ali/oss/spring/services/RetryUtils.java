@@ -0,0 +1,86 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSException;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * retry utils: only transient failures are retried, such as I/O errors, server errors and throttling,
+ * other failures such as AccessDenied, NoSuchKey or PreconditionFailed are thrown at once
+ *
+ * @author linux_china
+ */
+public class RetryUtils {
+    /**
+     * default max retries
+     */
+    private static final int MAX_RETRIES = 3;
+    /**
+     * default backoff in milliseconds, doubled after every failure
+     */
+    private static final long BACKOFF = 500;
+    /**
+     * OSS error codes of server errors, timeout and throttling
+     */
+    private static final Set<String> RETRYABLE_ERROR_CODES = Set.of("InternalError", "ServiceUnavailable", "RequestTimeout",
+            "SlowDown", "ServerBusy", "QpsLimitExceeded", "UploadTrafficRateLimitExceeded", "DownloadTrafficRateLimitExceeded");
+
+    /**
+     * call with default retries and backoff
+     *
+     * @param callable callable
+     * @param <T>      result type
+     * @return result
+     * @throws Exception last exception
+     */
+    public static <T> T call(Callable<T> callable) throws Exception {
+        return call(callable, MAX_RETRIES, BACKOFF);
+    }
+
+    /**
+     * call with retries, sleep with exponential backoff between attempts
+     *
+     * @param callable   callable
+     * @param maxRetries max retries
+     * @param backoff    first backoff in milliseconds
+     * @param <T>        result type
+     * @return result
+     * @throws Exception last exception
+     */
+    public static <T> T call(Callable<T> callable, int maxRetries, long backoff) throws Exception {
+        int attempt = 0;
+        while (true) {
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                if (attempt >= maxRetries || !isRetryable(e)) {
+                    throw e;
+                }
+                Thread.sleep(backoff << attempt);
+                attempt++;
+            }
+        }
+    }
+
+    /**
+     * is failure transient
+     *
+     * @param e exception
+     * @return retryable mark
+     */
+    public static boolean isRetryable(Exception e) {
+        if (e instanceof OSSException) {
+            String errorCode = ((OSSException) e).getErrorCode();
+            //status code is used as error code if error response has no body
+            return errorCode != null && (RETRYABLE_ERROR_CODES.contains(errorCode) || errorCode.matches("5\\d\\d"));
+        }
+        if (e instanceof ClientException) {
+            return !ClientErrorCode.NONREPEATABLE_REQUEST.equals(((ClientException) e).getErrorCode());
+        }
+        return e instanceof IOException;
+    }
+}
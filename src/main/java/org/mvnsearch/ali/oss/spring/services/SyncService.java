@@ -0,0 +1,41 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import java.io.File;
+
+/**
+ * sync service for directory transfer between local disk and OSS
+ *
+ * @author linux_china
+ */
+public interface SyncService {
+    /**
+     * default worker count for directory transfer
+     */
+    int DEFAULT_WORKERS = 8;
+
+    /**
+     * upload directory
+     *
+     * @param bucket       bucket
+     * @param destFilePath dest file path
+     * @param sourceDir    source directory
+     * @param synced       synced mark, unchanged files will be skipped
+     * @param options      transfer options
+     * @return uploaded file count
+     * @throws Exception exception, also thrown with failure summary if any file failed
+     */
+    int uploadDirectory(String bucket, String destFilePath, File sourceDir, boolean synced, TransferOptions options) throws Exception;
+
+    /**
+     * download objects under prefix into local directory, only new or changed objects are fetched
+     *
+     * @param bucket        bucket
+     * @param sourcePath    source object path
+     * @param destDir       dest directory
+     * @param deleteMissing delete local files which are missing remotely
+     * @param options       transfer options
+     * @return downloaded object count
+     * @throws Exception exception, also thrown with failure summary if any object failed
+     */
+    int downloadDirectory(String bucket, String sourcePath, File destDir, boolean deleteMissing, TransferOptions options) throws Exception;
+}
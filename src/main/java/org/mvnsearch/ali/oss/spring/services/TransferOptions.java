@@ -0,0 +1,109 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * transfer options for upload and download
+ *
+ * @author linux_china
+ */
+public class TransferOptions {
+    /**
+     * codec name to encode content, null if stored as is
+     */
+    @Nullable
+    private String codec;
+    /**
+     * parallel count for multipart transfer
+     */
+    private int parallel = 1;
+    /**
+     * resume from checkpoint
+     */
+    private boolean resume;
+    /**
+     * worker count for directory transfer
+     */
+    private int workers = SyncService.DEFAULT_WORKERS;
+    /**
+     * compare content hash instead of last modified time in sync
+     */
+    private boolean checksum;
+
+    /**
+     * construct method
+     */
+    public TransferOptions() {
+
+    }
+
+    /**
+     * construct method
+     *
+     * @param zip      zip mark, content is encoded with gzip
+     * @param parallel parallel count
+     */
+    public TransferOptions(Boolean zip, Integer parallel) {
+        setZip(zip);
+        setParallel(parallel);
+    }
+
+    public boolean isZip() {
+        return codec != null;
+    }
+
+    /**
+     * set zip mark, gzip is used if no codec specified
+     *
+     * @param zip zip mark
+     */
+    public void setZip(Boolean zip) {
+        if (zip != null && zip) {
+            this.codec = StringUtils.defaultIfEmpty(codec, "gzip");
+        } else {
+            this.codec = null;
+        }
+    }
+
+    @Nullable
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(@Nullable String codec) {
+        this.codec = StringUtils.trimToNull(codec);
+    }
+
+    public int getParallel() {
+        return parallel;
+    }
+
+    public void setParallel(Integer parallel) {
+        this.parallel = (parallel == null || parallel < 1) ? 1 : parallel;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(Boolean resume) {
+        this.resume = resume != null && resume;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = (workers == null || workers < 1) ? SyncService.DEFAULT_WORKERS : workers;
+    }
+
+    public boolean isChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(Boolean checksum) {
+        this.checksum = checksum != null && checksum;
+    }
+}
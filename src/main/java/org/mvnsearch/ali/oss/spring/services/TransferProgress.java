@@ -0,0 +1,111 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import org.apache.commons.io.FileUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * aggregated transfer progress, printed periodically instead of one line per file
+ *
+ * @author linux_china
+ */
+public class TransferProgress implements AutoCloseable {
+    /**
+     * report interval in seconds
+     */
+    private static final long REPORT_INTERVAL = 5;
+    /**
+     * transferred file count
+     */
+    private final AtomicLong transferred = new AtomicLong();
+    /**
+     * skipped file count
+     */
+    private final AtomicLong skipped = new AtomicLong();
+    /**
+     * failed file count
+     */
+    private final AtomicLong failed = new AtomicLong();
+    /**
+     * transferred bytes
+     */
+    private final AtomicLong bytes = new AtomicLong();
+    /**
+     * start time
+     */
+    private final long startTime = System.currentTimeMillis();
+    /**
+     * reporter
+     */
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * construct method, start periodical report
+     */
+    public TransferProgress() {
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oss-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println("Progress: " + this), REPORT_INTERVAL, REPORT_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * file transferred
+     *
+     * @param size file size
+     */
+    public void transferred(long size) {
+        transferred.incrementAndGet();
+        bytes.addAndGet(size);
+    }
+
+    /**
+     * file skipped
+     */
+    public void skipped() {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * file failed
+     */
+    public void failed() {
+        failed.incrementAndGet();
+    }
+
+    public long getTransferred() {
+        return transferred.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * progress text
+     *
+     * @return text
+     */
+    public String toString() {
+        long seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000);
+        return transferred.get() + " transferred, " + skipped.get() + " skipped, " + failed.get() + " failed, "
+                + FileUtils.byteCountToDisplaySize(bytes.get()) + " in " + seconds + "s";
+    }
+
+    /**
+     * stop periodical report
+     */
+    @Override
+    public void close() {
+        reporter.shutdownNow();
+    }
+}
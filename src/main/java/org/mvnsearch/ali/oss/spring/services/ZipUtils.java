@@ -1,7 +1,21 @@
 package org.mvnsearch.ali.oss.spring.services;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -15,6 +29,10 @@ public class ZipUtils {
      * buffer size
      */
     public static int BUFFER = 1024;
+    /**
+     * gzip header: magic, deflate method, no flags, no mtime, no extra flags, unknown OS
+     */
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
 
     /**
      * compress
@@ -51,4 +69,209 @@ public class ZipUtils {
         gis.close();
         return bos.toByteArray();
     }
+
+    /**
+     * compress stream with gzip on read: compressed content is pulled from the returned stream,
+     * so memory usage is bounded by buffer size whatever the plain content size is
+     *
+     * @param plainInput plain input stream
+     * @param level      compression level, 1-9 or -1 for default
+     * @param bufferSize buffer size of deflater input
+     * @return gzip compressed stream
+     */
+    public static InputStream compress(InputStream plainInput, int level, int bufferSize) {
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(level, true);
+        InputStream deflatedInput = new DeflaterInputStream(new CheckedInputStream(plainInput, crc), deflater, bufferSize);
+        return new SequenceInputStream(new Enumeration<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasMoreElements() {
+                return index < 3;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                switch (index++) {
+                    case 0:
+                        return new ByteArrayInputStream(GZIP_HEADER);
+                    case 1:
+                        return deflatedInput;
+                    case 2:
+                        //trailer is created after deflated stream exhausted: CRC32 and size of plain content
+                        byte[] trailer = new byte[8];
+                        writeIntLE(trailer, 0, crc.getValue());
+                        writeIntLE(trailer, 4, deflater.getBytesRead());
+                        deflater.end();
+                        return new ByteArrayInputStream(trailer);
+                    default:
+                        throw new NoSuchElementException();
+                }
+            }
+        });
+    }
+
+    /**
+     * compress stream with parallel block compression, like pigz: plain content is split into blocks,
+     * every block is compressed as an independent gzip member on the thread pool, and members are emitted
+     * in order. concatenated members are a valid gzip stream, so it is decoded by GZIPInputStream as before
+     *
+     * @param plainInput plain input stream
+     * @param level      compression level, 1-9 or -1 for default
+     * @param blockSize  block size
+     * @param threads    compression threads
+     * @return gzip compressed stream
+     */
+    public static InputStream compressParallel(InputStream plainInput, int level, int blockSize, int threads) {
+        return new ParallelGzipInputStream(plainInput, level, blockSize, Math.max(1, threads));
+    }
+
+    /**
+     * compress block as one gzip member
+     *
+     * @param block  block
+     * @param length content length in block
+     * @param level  compression level
+     * @return gzip member
+     */
+    static byte[] compressBlock(byte[] block, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2 + 64);
+            bos.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            byte[] buffer = new byte[BUFFER * 64];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                bos.write(buffer, 0, count);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(block, 0, length);
+            byte[] trailer = new byte[8];
+            writeIntLE(trailer, 0, crc.getValue());
+            writeIntLE(trailer, 4, length);
+            bos.write(trailer, 0, trailer.length);
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * write low 32 bits of value in little endian
+     *
+     * @param buffer buffer
+     * @param offset offset
+     * @param value  value
+     */
+    private static void writeIntLE(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    /**
+     * parallel gzip input stream: blocks are read from plain input in caller thread and compressed
+     * in a sliding window of futures, so memory usage is bounded by window * block size
+     */
+    private static class ParallelGzipInputStream extends InputStream {
+        private final InputStream plainInput;
+        private final int level;
+        private final int blockSize;
+        private final int window;
+        private final ExecutorService executor;
+        private final Deque<Future<byte[]>> members = new ArrayDeque<>();
+        private boolean eof;
+        private boolean empty = true;
+        private byte[] current;
+        private int position;
+
+        ParallelGzipInputStream(InputStream plainInput, int level, int blockSize, int threads) {
+            this.plainInput = plainInput;
+            this.level = level;
+            this.blockSize = blockSize;
+            this.window = threads * 2;
+            AtomicInteger counter = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "oss-gzip-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureMember()) {
+                return -1;
+            }
+            return current[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureMember()) {
+                return -1;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        /**
+         * make sure current member has remaining bytes
+         *
+         * @return false if all members consumed
+         * @throws IOException exception
+         */
+        private boolean ensureMember() throws IOException {
+            while (current == null || position == current.length) {
+                fill();
+                Future<byte[]> member = members.poll();
+                if (member == null) {
+                    return false;
+                }
+                try {
+                    current = member.get();
+                    position = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+            }
+            return true;
+        }
+
+        /**
+         * read blocks and submit compression until window is full, empty input is emitted as one empty member
+         *
+         * @throws IOException exception
+         */
+        private void fill() throws IOException {
+            while (!eof && members.size() < window) {
+                byte[] block = new byte[blockSize];
+                int length = IOUtils.read(plainInput, block);
+                if (length < blockSize) {
+                    eof = true;
+                }
+                if (length > 0 || empty) {
+                    empty = false;
+                    members.add(executor.submit(() -> compressBlock(block, length, level)));
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            executor.shutdownNow();
+            plainInput.close();
+        }
+    }
 }
@@ -1,26 +1,42 @@
 package org.mvnsearch.ali.oss.spring.services.impl;
 
 import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
 import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.internal.OSSHeaders;
 import com.aliyun.oss.model.*;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
+import org.apache.http.pool.PoolStats;
 import org.jetbrains.annotations.Nullable;
 import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.AsyncOssService;
+import org.mvnsearch.ali.oss.spring.services.Codec;
+import org.mvnsearch.ali.oss.spring.services.CodecRegistry;
 import org.mvnsearch.ali.oss.spring.services.ConfigService;
 import org.mvnsearch.ali.oss.spring.services.OSSUri;
-import org.mvnsearch.ali.oss.spring.services.ZipUtils;
-import org.mvnsearch.ali.oss.spring.shell.converters.BucketEnum;
+import org.mvnsearch.ali.oss.spring.services.ObjectListingPages;
+import org.mvnsearch.ali.oss.spring.services.RetryUtils;
+import org.mvnsearch.ali.oss.spring.services.TransferOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.javamail.ConfigurableMimeFileTypeMap;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * aliyun OSS service implementation
@@ -34,14 +50,66 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * end point
      */
     private static final String DEFAULT_ENDPOINT = "oss-cn-hangzhou.aliyuncs.com";
+    /**
+     * default multipart threshold, 100M
+     */
+    private static final long DEFAULT_MULTIPART_THRESHOLD = 100 * 1024 * 1024L;
+    /**
+     * default part size, 10M
+     */
+    private static final long DEFAULT_PART_SIZE = 10 * 1024 * 1024L;
+    /**
+     * default download chunk size, 8M
+     */
+    private static final long DEFAULT_DOWNLOAD_CHUNK_SIZE = 8 * 1024 * 1024L;
+    /**
+     * default parallel shards for listing
+     */
+    private static final long DEFAULT_LIST_PARALLEL = 8;
+    /**
+     * default threshold of multipart copy, 1G
+     */
+    private static final long DEFAULT_COPY_THRESHOLD = 1024 * 1024 * 1024L;
+    /**
+     * default part size of multipart copy, 100M
+     */
+    private static final long DEFAULT_COPY_PART_SIZE = 100 * 1024 * 1024L;
+    /**
+     * default parts in flight of multipart copy
+     */
+    private static final long DEFAULT_COPY_PARALLEL = 8;
+    /**
+     * retired client is shut down after its pool stays idle for this time, in milliseconds
+     */
+    private static final long RETIRE_IDLE_TIME = 30 * 1000L;
+    /**
+     * interval to check pool of retired client, in milliseconds
+     */
+    private static final long RETIRE_CHECK_INTERVAL = 5 * 1000L;
     /**
      * config service
      */
     private ConfigService configService;
+    /**
+     * codec registry
+     */
+    private CodecRegistry codecRegistry;
+    /**
+     * async oss service, refreshed with access info
+     */
+    private AsyncOssService asyncOssService;
     /**
      * oss client
      */
-    private OSSClient oss;
+    private volatile OSSClient oss;
+    /**
+     * scheduler to shut down retired clients
+     */
+    private final ScheduledExecutorService retiredClients = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "oss-client-retire");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * mime types
@@ -58,6 +126,26 @@ public class AliyunOssServiceImpl implements AliyunOssService {
         this.configService = configService;
     }
 
+    /**
+     * inject async oss service
+     *
+     * @param asyncOssService async oss service
+     */
+    @Autowired
+    public void setAsyncOssService(AsyncOssService asyncOssService) {
+        this.asyncOssService = asyncOssService;
+    }
+
+    /**
+     * inject codec registry
+     *
+     * @param codecRegistry codec registry
+     */
+    @Autowired
+    public void setCodecRegistry(CodecRegistry codecRegistry) {
+        this.codecRegistry = codecRegistry;
+    }
+
     /**
      * refresh token
      */
@@ -70,10 +158,49 @@ public class AliyunOssServiceImpl implements AliyunOssService {
             endpoint = DEFAULT_ENDPOINT;
         }
         if (accessId != null) {
-            oss = new OSSClient(endpoint, new DefaultCredentialProvider(accessId, accessKey), null);
+            OSSClient previous = oss;
+            oss = new OSSClient(endpoint, new DefaultCredentialProvider(accessId, accessKey), ClientTransport.createConfiguration(configService));
+            ClientTransport.tune(oss, configService);
+            if (previous != null) {
+                //transfers started before refresh may still hold the previous client
+                retire(previous, 0);
+            }
+            if (asyncOssService != null) {
+                asyncOssService.refresh();
+            }
         }
     }
 
+    /**
+     * shut down retired client after its connection pool stays idle for RETIRE_IDLE_TIME
+     *
+     * @param client    retired client
+     * @param idleSince time since pool is idle, 0 if busy
+     */
+    private void retire(OSSClient client, long idleSince) {
+        retiredClients.schedule(() -> {
+            if (!ClientTransport.isIdle(client)) {
+                retire(client, 0);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (idleSince > 0 && now - idleSince >= RETIRE_IDLE_TIME) {
+                client.shutdown();
+            } else {
+                retire(client, idleSince > 0 ? idleSince : now);
+            }
+        }, RETIRE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * get connection pool stats of oss client
+     *
+     * @return pool stats, total first and then every route
+     */
+    public Map<String, PoolStats> getConnectionPoolStats() {
+        return oss == null ? Collections.emptyMap() : ClientTransport.getPoolStats(oss);
+    }
+
     /**
      * get oss client
      *
@@ -84,13 +211,23 @@ public class AliyunOssServiceImpl implements AliyunOssService {
     }
 
     /**
-     * create bucket
+     * create bucket in region of endpoint
      *
      * @param bucket bucket name
+     * @return created bucket with region and creation date
      * @throws Exception exception
      */
-    public void createBucket(String bucket) throws Exception {
+    public Bucket createBucket(String bucket) throws Exception {
         oss.createBucket(bucket);
+        //create response carries no location, bucket is located in region of endpoint, such as oss-cn-hangzhou(-internal).aliyuncs.com
+        String endpoint = oss.getEndpoint().getHost();
+        String location = StringUtils.removeEnd(StringUtils.substringBefore(endpoint, "."), "-internal");
+        Bucket created = new Bucket(bucket);
+        created.setCreationDate(new Date());
+        created.setLocation(location);
+        created.setRegion(StringUtils.removeStart(location, "oss-"));
+        created.setExtranetEndpoint(StringUtils.remove(endpoint, "-internal"));
+        return created;
     }
 
     /**
@@ -120,9 +257,7 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @throws Exception exception
      */
     public List<Bucket> getBuckets() throws Exception {
-        List<Bucket> buckets = oss.listBuckets();
-        BucketEnum.reset(buckets);
-        return buckets;
+        return oss.listBuckets();
     }
 
     /**
@@ -134,13 +269,14 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      */
     @Nullable
     public Bucket getBucket(String name) throws Exception {
-        List<Bucket> buckets = oss.listBuckets();
-        for (Bucket bucket : buckets) {
-            if (bucket.getName().equals(name)) {
-                return bucket;
+        try {
+            return oss.getBucketInfo(name).getBucket();
+        } catch (OSSException e) {
+            if (OSSErrorCode.NO_SUCH_BUCKET.equals(e.getErrorCode())) {
+                return null;
             }
+            throw e;
         }
-        return null;
     }
 
     /**
@@ -207,6 +343,20 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @throws Exception exception
      */
     public ObjectListing list(String bucketName, String path, int maxResults) throws Exception {
+        return list(bucketName, path, null, maxResults);
+    }
+
+    /**
+     * list children recurly from marker, used for pagination
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param marker     marker, next marker of previous listing
+     * @param maxResults max results
+     * @return object listing
+     * @throws Exception exception
+     */
+    public ObjectListing list(String bucketName, String path, @Nullable String marker, int maxResults) throws Exception {
         if (path == null) {
             path = "";
         }
@@ -217,10 +367,39 @@ public class AliyunOssServiceImpl implements AliyunOssService {
         ListObjectsRequest request = new ListObjectsRequest();
         request.setBucketName(bucketName);
         request.setPrefix(path);
+        request.setMarker(marker);
         request.setMaxKeys(maxResults);
         return oss.listObjects(request);
     }
 
+    /**
+     * list children recurly page by page, pages are loaded lazily while iterating
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param pageSize   max keys for one page
+     * @return object listing pages
+     */
+    public Iterable<ObjectListing> listPages(String bucketName, String path, int pageSize) {
+        return new ObjectListingPages(marker -> list(bucketName, path, marker, pageSize));
+    }
+
+    /**
+     * list all objects under path recursively: top-level prefixes are discovered first and listed concurrently
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param ordered    ordered mark: if true, consumer is invoked in key order from caller thread,
+     *                   otherwise it is invoked concurrently and should be thread safe
+     * @param consumer   object summary consumer
+     * @throws Exception exception
+     */
+    public void listAll(String bucketName, String path, boolean ordered, ObjectSummaryConsumer consumer) throws Exception {
+        String prefix = StringUtils.removeEnd(StringUtils.trimToEmpty(path), "*");
+        int parallel = (int) configService.getLongProperty("LIST_PARALLEL", DEFAULT_LIST_PARALLEL);
+        new ShardedLister(oss, parallel).list(bucketName, prefix, ordered, consumer);
+    }
+
     /**
      * list children only
      *
@@ -242,6 +421,20 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @throws Exception exception
      */
     public ObjectListing listChildren(String bucketName, String path, int maxResults) throws Exception {
+        return listChildren(bucketName, path, null, maxResults);
+    }
+
+    /**
+     * list children only from marker, used for pagination
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param marker     marker, next marker of previous listing
+     * @param maxResults max results
+     * @return object listing
+     * @throws Exception exception
+     */
+    public ObjectListing listChildren(String bucketName, String path, @Nullable String marker, int maxResults) throws Exception {
         if (path == null || path.equals("/")) {
             path = "";
         }
@@ -253,10 +446,41 @@ public class AliyunOssServiceImpl implements AliyunOssService {
         request.setBucketName(bucketName);
         request.setPrefix(path);
         request.setDelimiter("/");
+        request.setMarker(marker);
         request.setMaxKeys(maxResults);
         return oss.listObjects(request);
     }
 
+    /**
+     * list children only page by page, pages are loaded lazily while iterating
+     *
+     * @param bucketName bucket name
+     * @param path       path
+     * @param pageSize   max keys for one page
+     * @return object listing pages
+     */
+    public Iterable<ObjectListing> listChildrenPages(String bucketName, String path, int pageSize) {
+        return new ObjectListingPages(marker -> listChildren(bucketName, path, marker, pageSize));
+    }
+
+    /**
+     * list children by raw prefix with delimiter, the prefix is not normalized as directory,
+     * so "logs/app" lists "logs/app.log" and "logs/app-2023/"
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param maxResults max results
+     * @return object listing
+     * @throws Exception exception
+     */
+    public ObjectListing listChildrenByPrefix(String bucketName, String prefix, int maxResults) throws Exception {
+        ListObjectsRequest request = new ListObjectsRequest(bucketName);
+        request.setPrefix(StringUtils.defaultString(prefix));
+        request.setDelimiter("/");
+        request.setMaxKeys(maxResults);
+        return RetryUtils.call(() -> oss.listObjects(request));
+    }
+
     /**
      * put local file to OSS
      *
@@ -265,12 +489,7 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @return oss file path
      */
     public ObjectMetadata put(String sourceFilePath, OSSUri destObject) throws Exception {
-        byte[] content = IOUtils.toByteArray(new FileInputStream(sourceFilePath));
-        ObjectMetadata objectMetadata = new ObjectMetadata();
-        objectMetadata.setContentType(mimeTypes.getContentType(sourceFilePath));
-        objectMetadata.setContentLength(content.length);
-        oss.putObject(destObject.getBucket(), destObject.getFilePath(), new ByteArrayInputStream(content), objectMetadata);
-        return objectMetadata;
+        return put(sourceFilePath, destObject, new TransferOptions());
     }
 
     /**
@@ -281,15 +500,63 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @return oss file path
      */
     public ObjectMetadata put(String sourceFilePath, OSSUri destObject, Boolean zip) throws Exception {
-        if (zip == null || !zip) {
-            return put(sourceFilePath, destObject);
+        return put(sourceFilePath, destObject, new TransferOptions(zip, 1));
+    }
+
+    /**
+     * put local file to OSS with transfer options
+     *
+     * @param sourceFilePath source file path on local disk
+     * @param destObject     dest object
+     * @param options        transfer options
+     * @return oss file path
+     */
+    public ObjectMetadata put(String sourceFilePath, OSSUri destObject, TransferOptions options) throws Exception {
+        if (options.isZip()) {
+            return putWithCodec(sourceFilePath, destObject, options);
+        }
+        File sourceFile = new File(sourceFilePath);
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentType(mimeTypes.getContentType(sourceFilePath));
+        long threshold = configService.getLongProperty("MULTIPART_THRESHOLD", DEFAULT_MULTIPART_THRESHOLD);
+        if (sourceFile.length() > threshold) {
+            long partSize = configService.getLongProperty("PART_SIZE", DEFAULT_PART_SIZE);
+            File checkpointDir = new File(configService.getWorkDirectory(), "checkpoints");
+            new MultipartUploader(oss, partSize, checkpointDir).upload(sourceFile, destObject, objectMetadata, options);
+        } else {
+            objectMetadata.setContentLength(sourceFile.length());
+            try (InputStream content = new FileInputStream(sourceFile)) {
+                oss.putObject(destObject.getBucket(), destObject.getFilePath(), content, objectMetadata);
+            }
+        }
+        objectMetadata.setContentLength(sourceFile.length());
+        return objectMetadata;
+    }
+
+    /**
+     * put local file to OSS with codec, codec name is recorded as Content-Encoding. File is encoded while uploading,
+     * so memory usage is bounded by part size * parallel whatever the file size is
+     *
+     * @param sourceFilePath source file path on local disk
+     * @param destObject     dest object
+     * @param options        transfer options
+     * @return object metadata
+     */
+    private ObjectMetadata putWithCodec(String sourceFilePath, OSSUri destObject, TransferOptions options) throws Exception {
+        Codec codec = codecRegistry.getCodec(options.getCodec());
+        if (codec == null) {
+            throw new IllegalArgumentException("Unsupported codec: " + options.getCodec() + ", available: " + codecRegistry.getNames());
         }
-        byte[] zipContent = ZipUtils.compress(IOUtils.toByteArray(new FileInputStream(sourceFilePath)));
         ObjectMetadata objectMetadata = new ObjectMetadata();
         objectMetadata.setContentType(mimeTypes.getContentType(sourceFilePath));
-        objectMetadata.setContentEncoding("gzip");
-        objectMetadata.setContentLength(zipContent.length);
-        oss.putObject(destObject.getBucket(), destObject.getFilePath(), new ByteArrayInputStream(zipContent), objectMetadata);
+        objectMetadata.setContentEncoding(codec.getName());
+        long partSize = configService.getLongProperty("PART_SIZE", DEFAULT_PART_SIZE);
+        File checkpointDir = new File(configService.getWorkDirectory(), "checkpoints");
+        File sourceFile = new File(sourceFilePath);
+        try (InputStream content = codec.encode(new FileInputStream(sourceFile), sourceFile.length())) {
+            long length = new MultipartUploader(oss, partSize, checkpointDir).upload(content, destObject, objectMetadata, options.getParallel());
+            objectMetadata.setContentLength(length);
+        }
         return objectMetadata;
     }
 
@@ -302,10 +569,90 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @throws Exception exception
      */
     public String copy(OSSUri sourceObjectUri, OSSUri destObjectUri) throws Exception {
-        oss.copyObject(sourceObjectUri.getBucket(), sourceObjectUri.getFilePath(), destObjectUri.getBucket(), destObjectUri.getFilePath());
+        ObjectMetadata objectMetadata = oss.getObjectMetadata(sourceObjectUri.getBucket(), sourceObjectUri.getFilePath());
+        if (isMultipartCopy(objectMetadata.getContentLength())) {
+            multipartCopy(sourceObjectUri, destObjectUri, objectMetadata, newObjectMetadata(objectMetadata));
+        } else {
+            RetryUtils.call(() -> oss.copyObject(sourceObjectUri.getBucket(), sourceObjectUri.getFilePath(),
+                    destObjectUri.getBucket(), destObjectUri.getFilePath()));
+        }
         return destObjectUri.toString();
     }
 
+    /**
+     * copy object with known size, objects above copy threshold are copied with multipart copy
+     *
+     * @param sourceObjectUri source object uri
+     * @param destObjectUri   dest object uri
+     * @param objectSize      source object size
+     * @return new file path
+     * @throws Exception exception
+     */
+    public String copy(OSSUri sourceObjectUri, OSSUri destObjectUri, long objectSize) throws Exception {
+        if (isMultipartCopy(objectSize)) {
+            return copy(sourceObjectUri, destObjectUri);
+        }
+        RetryUtils.call(() -> oss.copyObject(sourceObjectUri.getBucket(), sourceObjectUri.getFilePath(),
+                destObjectUri.getBucket(), destObjectUri.getFilePath()));
+        return destObjectUri.toString();
+    }
+
+    /**
+     * is object size above copy threshold
+     *
+     * @param objectSize object size
+     * @return multipart copy mark
+     */
+    private boolean isMultipartCopy(long objectSize) {
+        return objectSize > configService.getLongProperty("COPY_THRESHOLD", DEFAULT_COPY_THRESHOLD);
+    }
+
+    /**
+     * copy object with concurrent UploadPartCopy parts
+     *
+     * @param sourceObjectUri   source object uri
+     * @param destObjectUri     dest object uri
+     * @param sourceMetadata    source object metadata from HEAD
+     * @param newObjectMetadata metadata of new object
+     * @throws Exception exception
+     */
+    private void multipartCopy(OSSUri sourceObjectUri, OSSUri destObjectUri, ObjectMetadata sourceMetadata, ObjectMetadata newObjectMetadata) throws Exception {
+        long partSize = configService.getLongProperty("COPY_PART_SIZE", DEFAULT_COPY_PART_SIZE);
+        int parallel = (int) configService.getLongProperty("COPY_PARALLEL", DEFAULT_COPY_PARALLEL);
+        new MultipartCopier(oss, partSize, parallel).copy(sourceObjectUri, destObjectUri, newObjectMetadata,
+                sourceMetadata.getContentLength(), sourceMetadata.getETag());
+    }
+
+    /**
+     * create metadata for new object from source object's metadata, response only headers are dropped
+     *
+     * @param source source object metadata
+     * @return new object metadata
+     */
+    private static ObjectMetadata newObjectMetadata(ObjectMetadata source) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        if (source.getContentType() != null) {
+            objectMetadata.setContentType(source.getContentType());
+        }
+        if (source.getContentEncoding() != null) {
+            objectMetadata.setContentEncoding(source.getContentEncoding());
+        }
+        if (source.getCacheControl() != null) {
+            objectMetadata.setCacheControl(source.getCacheControl());
+        }
+        if (source.getContentDisposition() != null) {
+            objectMetadata.setContentDisposition(source.getContentDisposition());
+        }
+        Object expires = source.getRawMetadata().get(OSSHeaders.EXPIRES);
+        if (expires != null) {
+            objectMetadata.setHeader(OSSHeaders.EXPIRES, expires);
+        }
+        if (source.getUserMetadata() != null) {
+            objectMetadata.setUserMetadata(new HashMap<>(source.getUserMetadata()));
+        }
+        return objectMetadata;
+    }
+
 
     /**
      * get file and save into local disk
@@ -315,24 +662,48 @@ public class AliyunOssServiceImpl implements AliyunOssService {
      * @return local file path
      */
     public String get(OSSUri objectUri, String destFilePath) throws Exception {
-        OSSObject ossObject = oss.getObject(objectUri.getBucket(), objectUri.getFilePath());
+        return get(objectUri, destFilePath, new TransferOptions());
+    }
+
+    /**
+     * get file and save into local disk with transfer options, large object will be downloaded with
+     * concurrent range requests if parallel is greater than 1 or resume required
+     *
+     * @param objectUri    object uri
+     * @param destFilePath dest file path
+     * @param options      transfer options
+     * @return local file path
+     */
+    public String get(OSSUri objectUri, String destFilePath, TransferOptions options) throws Exception {
         File destFile = new File(destFilePath);
-        if (ossObject != null) {
-            if (destFile.isDirectory() && objectUri.getFileName() != null) {
-                destFile = new File(destFile, objectUri.getFileName());
-            }
-            if (!destFile.getParentFile().exists()) {
-                FileUtils.forceMkdir(destFile.getParentFile());
+        if (destFile.isDirectory() && objectUri.getFileName() != null) {
+            destFile = new File(destFile, objectUri.getFileName());
+        }
+        if (!destFile.getParentFile().exists()) {
+            FileUtils.forceMkdir(destFile.getParentFile());
+        }
+        long chunkSize = configService.getLongProperty("DOWNLOAD_CHUNK_SIZE", DEFAULT_DOWNLOAD_CHUNK_SIZE);
+        if (options.getParallel() > 1 || options.isResume()) {
+            ObjectMetadata objectMetadata = oss.getObjectMetadata(objectUri.getBucket(), objectUri.getFilePath());
+            //encoded content should be decoded as one stream
+            if (objectMetadata.getContentEncoding() == null && objectMetadata.getContentLength() > chunkSize) {
+                new RangeDownloader(oss, chunkSize).download(objectUri, objectMetadata, destFile, options);
+                return destFile.getAbsolutePath();
             }
-            FileOutputStream fos = new FileOutputStream(destFilePath);
-            InputStream content = ossObject.getObjectContent();
-            //处理解压缩
-            if ("gzip".equalsIgnoreCase(ossObject.getObjectMetadata().getContentEncoding())) {
-                IOUtils.copy(new GZIPInputStream(content), fos);
-            } else {
-                IOUtils.copy(content, fos);
+        }
+        OSSObject ossObject = oss.getObject(objectUri.getBucket(), objectUri.getFilePath());
+        if (ossObject != null) {
+            //write to temp file first, so dest file will not be corrupted if failed
+            File tempFile = RangeDownloader.getPartFile(destFile);
+            try (InputStream content = ossObject.getObjectContent(); OutputStream fos = new FileOutputStream(tempFile)) {
+                //处理解压缩
+                Codec codec = codecRegistry.getCodec(ossObject.getObjectMetadata().getContentEncoding());
+                IOUtils.copy(codec != null ? codec.decode(content) : content, fos);
+            } catch (Exception e) {
+                FileUtils.deleteQuietly(tempFile);
+                throw e;
             }
-            fos.close();
+            Files.move(tempFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
         return destFile.getAbsolutePath();
     }
@@ -347,6 +718,22 @@ public class AliyunOssServiceImpl implements AliyunOssService {
         oss.deleteObject(objectUri.getBucket(), objectUri.getFilePath());
     }
 
+    /**
+     * delete objects with one DeleteObjects request in quiet mode
+     *
+     * @param bucketName bucket name
+     * @param keys       object keys, max 1000
+     * @return deleted count
+     * @throws Exception exception
+     */
+    public int delete(String bucketName, List<String> keys) throws Exception {
+        DeleteObjectsRequest request = new DeleteObjectsRequest(bucketName);
+        request.setKeys(keys);
+        request.setQuiet(true);
+        RetryUtils.call(() -> oss.deleteObjects(request));
+        return keys.size();
+    }
+
     /**
      * get oss object
      *
@@ -375,33 +762,64 @@ public class AliyunOssServiceImpl implements AliyunOssService {
     }
 
     /**
-     * set object meta data
+     * set object meta data, object is not rewritten if the value is already set
      *
      * @param objectUri object uri
      * @param key       key
      * @param value     value
+     * @return updated mark
+     */
+    public boolean setObjectMetadata(OSSUri objectUri, String key, String value) throws Exception {
+        return setObjectMetadata(objectUri, oss.getObjectMetadata(objectUri.getBucket(), objectUri.getFilePath()), key, value);
+    }
+
+    /**
+     * set object meta data with current metadata got by caller, such as HEAD by async service
+     *
+     * @param objectUri      object uri
+     * @param objectMetadata current object metadata
+     * @param key            key
+     * @param value          value
+     * @return updated mark
+     * @throws Exception exception
      */
-    public void setObjectMetadata(OSSUri objectUri, String key, String value) throws Exception {
-        ObjectMetadata objectMetadata = oss.getObjectMetadata(objectUri.getBucket(), objectUri.getFilePath());
+    public boolean setObjectMetadata(OSSUri objectUri, ObjectMetadata objectMetadata, String key, String value) throws Exception {
         CopyObjectRequest copyObjectRequest = new CopyObjectRequest(objectUri.getBucket(), objectUri.getFilePath(),
                 objectUri.getBucket(), objectUri.getFilePath());
+        boolean unchanged;
         if (key.equalsIgnoreCase("Cache-Control")) {
+            unchanged = value.equals(objectMetadata.getCacheControl());
             objectMetadata.setCacheControl(value);
         } else if (key.equals("Content-Type")) {
+            unchanged = value.equals(objectMetadata.getContentType());
             objectMetadata.setContentType(value);
         } else if (key.equalsIgnoreCase("Expires")) {
-            objectMetadata.setExpirationTime(DateUtils.parseDate(value, "yyyy-MM-dd", "yyyy-MM-dd HH:mm:ss"));
+            Date expirationTime = DateUtils.parseDate(value, "yyyy-MM-dd", "yyyy-MM-dd HH:mm:ss");
+            unchanged = objectMetadata.getRawMetadata().get(OSSHeaders.EXPIRES) != null
+                    && expirationTime.equals(objectMetadata.getExpirationTime());
+            objectMetadata.setExpirationTime(expirationTime);
         } else if (key.equalsIgnoreCase("Content-Encoding")) {
+            unchanged = value.equals(objectMetadata.getContentEncoding());
             objectMetadata.setContentEncoding(value);
         } else if (key.equalsIgnoreCase("Content-Disposition")) {
+            unchanged = value.equals(objectMetadata.getContentDisposition());
             objectMetadata.setContentDisposition(value);
         } else {
             if (objectMetadata.getUserMetadata() == null || objectMetadata.getUserMetadata().isEmpty()) {
                 objectMetadata.setUserMetadata(new HashMap<>());
             }
+            unchanged = value.equals(objectMetadata.getUserMetadata().get(key.toLowerCase()));
             objectMetadata.getUserMetadata().put(key, value);
         }
+        if (unchanged) {
+            return false;
+        }
+        if (isMultipartCopy(objectMetadata.getContentLength())) {
+            multipartCopy(objectUri, objectUri, objectMetadata, newObjectMetadata(objectMetadata));
+            return true;
+        }
         copyObjectRequest.setNewObjectMetadata(objectMetadata);
-        oss.copyObject(copyObjectRequest);
+        RetryUtils.call(() -> oss.copyObject(copyObjectRequest));
+        return true;
     }
 }
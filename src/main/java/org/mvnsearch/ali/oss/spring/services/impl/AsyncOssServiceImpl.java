@@ -0,0 +1,486 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.model.*;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.AsyncOssService;
+import org.mvnsearch.ali.oss.spring.services.ConfigService;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * asynchronous OSS service on JDK HttpClient: with ASYNC_HTTP_VERSION 2 (default) HTTP/2 is negotiated over TLS
+ * and falls back to HTTP/1.1, so concurrent requests to a bucket are multiplexed on few connections; 1.1 forces HTTP/1.1.
+ * responses are handled by ASYNC_THREADS threads.
+ * requests are signed with SIGNATURE_VERSION (v1 or v4), and V4 uses REGION or the region in endpoint
+ *
+ * @author linux_china
+ */
+@Component("asyncOssService")
+public class AsyncOssServiceImpl implements AsyncOssService {
+    /**
+     * default end point
+     */
+    private static final String DEFAULT_ENDPOINT = "oss-cn-hangzhou.aliyuncs.com";
+    /**
+     * default response threads
+     */
+    private static final long DEFAULT_ASYNC_THREADS = 4;
+    /**
+     * default connect timeout in seconds
+     */
+    private static final long DEFAULT_CONNECT_TIMEOUT = 10;
+    /**
+     * config service
+     */
+    private ConfigService configService;
+    /**
+     * response executor
+     */
+    private ExecutorService executor;
+    /**
+     * http client
+     */
+    private volatile HttpClient httpClient;
+    /**
+     * cached signer, null if access info changed
+     */
+    private volatile CachedSigner signer;
+
+    /**
+     * signer with its endpoint host
+     */
+    private static class CachedSigner {
+        private final String host;
+        private final OssRequestSigner signer;
+
+        CachedSigner(String host, OssRequestSigner signer) {
+            this.host = host;
+            this.signer = signer;
+        }
+    }
+
+    /**
+     * inject config service
+     *
+     * @param configService config service
+     */
+    @Autowired
+    public void setConfigService(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    /**
+     * init http client
+     */
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool((int) Math.max(1, configService.getLongProperty("ASYNC_THREADS", DEFAULT_ASYNC_THREADS)), runnable -> {
+            Thread thread = new Thread(runnable, "oss-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpClient = createHttpClient();
+    }
+
+    /**
+     * access info or transport config changed: cached signer is dropped and HTTP client is rebuilt,
+     * requests in flight are completed on previous client
+     */
+    public void refresh() {
+        signer = null;
+        httpClient = createHttpClient();
+    }
+
+    /**
+     * create http client with configured HTTP version and connect timeout
+     *
+     * @return http client
+     */
+    private HttpClient createHttpClient() {
+        String httpVersion = Objects.requireNonNullElse(configService.getProperty("ASYNC_HTTP_VERSION"), "2").trim();
+        return HttpClient.newBuilder()
+                .version(httpVersion.equals("1.1") ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(configService.getLongProperty("CONNECT_TIMEOUT", DEFAULT_CONNECT_TIMEOUT)))
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * shutdown response executor
+     */
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * list objects
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param delimiter  delimiter, null for recursive listing
+     * @param marker     marker, null for first page
+     * @param maxResults max results
+     * @return object listing
+     */
+    public CompletableFuture<ObjectListing> list(String bucketName, String prefix, @Nullable String delimiter, @Nullable String marker, int maxResults) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("prefix", prefix);
+        if (delimiter != null) {
+            parameters.put("delimiter", delimiter);
+        }
+        if (marker != null) {
+            parameters.put("marker", marker);
+        }
+        parameters.put("max-keys", String.valueOf(maxResults));
+        parameters.put("encoding-type", "url");
+        return send("GET", bucketName, "", parameters, new LinkedHashMap<>(), HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> parseListing(bucketName, checkResponse(response, response.body())));
+    }
+
+    /**
+     * get object metadata with HEAD request
+     *
+     * @param objectUri object uri
+     * @return object metadata, null if object not found
+     */
+    public CompletableFuture<ObjectMetadata> getObjectMetadata(OSSUri objectUri) {
+        return send("HEAD", objectUri.getBucket(), objectUri.getFilePath(), Collections.emptyMap(), new LinkedHashMap<>(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    if (response.statusCode() == 404) {
+                        return null;
+                    }
+                    checkResponse(response, null);
+                    return toObjectMetadata(response.headers());
+                });
+    }
+
+    /**
+     * get object, content should be closed by caller
+     *
+     * @param objectUri object uri
+     * @return oss object
+     */
+    public CompletableFuture<OSSObject> getOssObject(OSSUri objectUri) {
+        return send("GET", objectUri.getBucket(), objectUri.getFilePath(), Collections.emptyMap(), new LinkedHashMap<>(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    if (response.statusCode() >= 300) {
+                        try (InputStream body = response.body()) {
+                            checkResponse(response, body.readAllBytes());
+                        } catch (Exception e) {
+                            throw e instanceof RuntimeException ? (RuntimeException) e : new ClientException(e);
+                        }
+                    }
+                    OSSObject ossObject = new OSSObject();
+                    ossObject.setBucketName(objectUri.getBucket());
+                    ossObject.setKey(objectUri.getFilePath());
+                    ossObject.setObjectMetadata(toObjectMetadata(response.headers()));
+                    ossObject.setObjectContent(response.body());
+                    return ossObject;
+                });
+    }
+
+    /**
+     * put object
+     *
+     * @param destObject     dest object
+     * @param content        content
+     * @param objectMetadata object metadata
+     * @return ETag
+     */
+    public CompletableFuture<String> put(OSSUri destObject, byte[] content, ObjectMetadata objectMetadata) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put(OSSHeaders.CONTENT_TYPE, Objects.requireNonNullElse(objectMetadata.getContentType(), "application/octet-stream"));
+        putIfPresent(headers, OSSHeaders.CONTENT_MD5, objectMetadata.getContentMD5());
+        putIfPresent(headers, OSSHeaders.CONTENT_ENCODING, objectMetadata.getContentEncoding());
+        putIfPresent(headers, OSSHeaders.CACHE_CONTROL, objectMetadata.getCacheControl());
+        putIfPresent(headers, OSSHeaders.CONTENT_DISPOSITION, objectMetadata.getContentDisposition());
+        for (Map.Entry<String, String> entry : objectMetadata.getUserMetadata().entrySet()) {
+            headers.put(OSSHeaders.OSS_USER_METADATA_PREFIX + entry.getKey(), entry.getValue());
+        }
+        return send("PUT", destObject.getBucket(), destObject.getFilePath(), Collections.emptyMap(), headers,
+                HttpRequest.BodyPublishers.ofByteArray(content), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    checkResponse(response, response.body());
+                    return trimQuotes(response.headers().firstValue(OSSHeaders.ETAG).orElse(null));
+                });
+    }
+
+    /**
+     * delete object
+     *
+     * @param objectUri object uri
+     * @return completion
+     */
+    public CompletableFuture<Void> delete(OSSUri objectUri) {
+        return send("DELETE", objectUri.getBucket(), objectUri.getFilePath(), Collections.emptyMap(), new LinkedHashMap<>(),
+                HttpRequest.BodyPublishers.noBody(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenAccept(response -> checkResponse(response, response.body()));
+    }
+
+    /**
+     * sign and send request, transport failures are completed with ClientException
+     *
+     * @param method      http method
+     * @param bucketName  bucket name
+     * @param key         object key, empty for bucket
+     * @param parameters  query parameters
+     * @param headers     request headers
+     * @param body        request body
+     * @param bodyHandler response body handler
+     * @param <T>         response body type
+     * @return response
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(String method, String bucketName, String key, Map<String, String> parameters,
+                                                        Map<String, String> headers, HttpRequest.BodyPublisher body,
+                                                        HttpResponse.BodyHandler<T> bodyHandler) {
+        HttpRequest request;
+        try {
+            String endpoint = Objects.requireNonNullElse(configService.getProperty("ENDPOINT"), DEFAULT_ENDPOINT);
+            String scheme = endpoint.startsWith("http://") ? "http://" : "https://";
+            String host = endpoint.replaceFirst("^https?://", "").replaceAll("/+$", "");
+            getSigner(host).sign(method, "/" + bucketName + "/" + key, parameters, headers, Instant.now());
+            String query = parameters.isEmpty() ? "" : "?" + OssRequestSigner.canonicalQueryString(parameters);
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(scheme + bucketName + "." + host + "/" + OssRequestSigner.urlEncode(key, true) + query))
+                    .method(method, body);
+            headers.forEach(builder::header);
+            long requestTimeout = configService.getLongProperty("REQUEST_TIMEOUT", 0);
+            if (requestTimeout > 0) {
+                builder.timeout(Duration.ofSeconds(requestTimeout));
+            }
+            request = builder.build();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e instanceof ClientException ? e : new ClientException(e));
+        }
+        return httpClient.sendAsync(request, bodyHandler).handle((response, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new ClientException(cause);
+            }
+            return response;
+        });
+    }
+
+    /**
+     * get signer of access info, cached until refresh or endpoint changed
+     *
+     * @param host endpoint host
+     * @return request signer
+     */
+    private OssRequestSigner getSigner(String host) {
+        CachedSigner cached = signer;
+        if (cached != null && cached.host.equals(host)) {
+            return cached.signer;
+        }
+        String accessId = configService.getProperty("ACCESS_ID");
+        String accessKey = configService.getProperty("ACCESS_KEY");
+        if (accessId == null || accessKey == null) {
+            throw new ClientException("Please config access info!");
+        }
+        String region = configService.getProperty("REGION");
+        if (region == null && host.startsWith("oss-")) {
+            //oss-cn-hangzhou.aliyuncs.com or oss-cn-hangzhou-internal.aliyuncs.com
+            region = host.substring(4, host.indexOf('.') > 0 ? host.indexOf('.') : host.length()).replace("-internal", "");
+        }
+        OssRequestSigner created = new OssRequestSigner(accessId, accessKey, Objects.requireNonNullElse(configService.getProperty("SIGNATURE_VERSION"), OssRequestSigner.V1), region);
+        signer = new CachedSigner(host, created);
+        return created;
+    }
+
+    /**
+     * check response status, error response is converted to OSSException
+     *
+     * @param response response
+     * @param body     response body, null if absent
+     * @param <T>      body type
+     * @return response body
+     */
+    private static <T> T checkResponse(HttpResponse<T> response, @Nullable byte[] body) {
+        int status = response.statusCode();
+        if (status >= 200 && status < 300) {
+            return response.body();
+        }
+        String requestId = response.headers().firstValue("x-oss-request-id").orElse(null);
+        String errorCode = String.valueOf(status);
+        String message = "HTTP " + status;
+        String hostId = null;
+        if (body != null && body.length > 0) {
+            try {
+                Element root = parseXml(body);
+                errorCode = Objects.requireNonNullElse(root.getChildText("Code"), errorCode);
+                message = Objects.requireNonNullElse(root.getChildText("Message"), message);
+                requestId = Objects.requireNonNullElse(root.getChildText("RequestId"), requestId);
+                hostId = root.getChildText("HostId");
+            } catch (Exception ignore) {
+
+            }
+        }
+        throw new OSSException(message, errorCode, requestId, hostId, null, null, response.request().method());
+    }
+
+    /**
+     * parse listing result, keys are url encoded
+     *
+     * @param bucketName bucket name
+     * @param body       response body
+     * @return object listing
+     */
+    private static ObjectListing parseListing(String bucketName, byte[] body) {
+        Element root;
+        try {
+            root = parseXml(body);
+        } catch (Exception e) {
+            throw new ClientException("Invalid listing response", e);
+        }
+        ObjectListing objectListing = new ObjectListing();
+        objectListing.setBucketName(bucketName);
+        objectListing.setPrefix(urlDecode(root.getChildText("Prefix")));
+        objectListing.setMarker(urlDecode(root.getChildText("Marker")));
+        objectListing.setDelimiter(urlDecode(root.getChildText("Delimiter")));
+        objectListing.setNextMarker(urlDecode(root.getChildText("NextMarker")));
+        objectListing.setMaxKeys(Integer.parseInt(Objects.requireNonNullElse(root.getChildText("MaxKeys"), "0")));
+        objectListing.setTruncated(Boolean.parseBoolean(root.getChildText("IsTruncated")));
+        for (Element contents : root.getChildren("Contents")) {
+            OSSObjectSummary objectSummary = new OSSObjectSummary();
+            objectSummary.setBucketName(bucketName);
+            objectSummary.setKey(urlDecode(contents.getChildText("Key")));
+            objectSummary.setETag(trimQuotes(contents.getChildText("ETag")));
+            objectSummary.setSize(Long.parseLong(Objects.requireNonNullElse(contents.getChildText("Size"), "0")));
+            objectSummary.setType(contents.getChildText("Type"));
+            objectSummary.setStorageClass(contents.getChildText("StorageClass"));
+            String lastModified = contents.getChildText("LastModified");
+            if (lastModified != null) {
+                objectSummary.setLastModified(Date.from(Instant.parse(lastModified)));
+            }
+            Element owner = contents.getChild("Owner");
+            if (owner != null) {
+                objectSummary.setOwner(new Owner(owner.getChildText("ID"), owner.getChildText("DisplayName")));
+            }
+            objectListing.addObjectSummary(objectSummary);
+        }
+        for (Element commonPrefixes : root.getChildren("CommonPrefixes")) {
+            objectListing.addCommonPrefix(urlDecode(commonPrefixes.getChildText("Prefix")));
+        }
+        return objectListing;
+    }
+
+    /**
+     * convert response headers to object metadata
+     *
+     * @param headers response headers
+     * @return object metadata
+     */
+    private static ObjectMetadata toObjectMetadata(HttpHeaders headers) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        for (Map.Entry<String, List<String>> entry : headers.map().entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            String value = entry.getValue().isEmpty() ? "" : entry.getValue().get(0);
+            if (name.startsWith(OSSHeaders.OSS_USER_METADATA_PREFIX)) {
+                objectMetadata.addUserMetadata(name.substring(OSSHeaders.OSS_USER_METADATA_PREFIX.length()), value);
+            } else if (name.startsWith("x-oss-")) {
+                objectMetadata.setHeader(name, value);
+            } else if (name.equals("content-length")) {
+                objectMetadata.setContentLength(Long.parseLong(value));
+            } else if (name.equals("last-modified")) {
+                objectMetadata.setLastModified(Date.from(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()));
+            } else if (name.equals("etag")) {
+                objectMetadata.setHeader(OSSHeaders.ETAG, trimQuotes(value));
+            } else if (name.equals("content-type")) {
+                objectMetadata.setContentType(value);
+            } else if (name.equals("content-encoding")) {
+                objectMetadata.setContentEncoding(value);
+            } else if (name.equals("cache-control")) {
+                objectMetadata.setCacheControl(value);
+            } else if (name.equals("content-disposition")) {
+                objectMetadata.setContentDisposition(value);
+            } else if (name.equals("expires")) {
+                objectMetadata.setHeader(OSSHeaders.EXPIRES, value);
+            } else if (name.equals("content-md5")) {
+                objectMetadata.setContentMD5(value);
+            }
+        }
+        return objectMetadata;
+    }
+
+    /**
+     * parse xml without DTD
+     *
+     * @param body xml content
+     * @return root element
+     * @throws Exception exception
+     */
+    private static Element parseXml(byte[] body) throws Exception {
+        SAXBuilder builder = new SAXBuilder();
+        builder.setExpandEntities(false);
+        builder.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        Document document = builder.build(new ByteArrayInputStream(body));
+        return document.getRootElement();
+    }
+
+    /**
+     * put header if value present
+     *
+     * @param headers headers
+     * @param name    header name
+     * @param value   header value
+     */
+    private static void putIfPresent(Map<String, String> headers, String name, @Nullable String value) {
+        if (value != null && !value.isEmpty()) {
+            headers.put(name, value);
+        }
+    }
+
+    /**
+     * url decode
+     *
+     * @param value url encoded value
+     * @return decoded value, null if absent
+     */
+    @Nullable
+    private static String urlDecode(@Nullable String value) {
+        return value == null ? null : URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * trim quotes of ETag
+     *
+     * @param value ETag
+     * @return ETag without quotes
+     */
+    @Nullable
+    private static String trimQuotes(@Nullable String value) {
+        return value == null ? null : value.replace("\"", "");
+    }
+}
@@ -0,0 +1,50 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.decoder.BrotliInputStream;
+import com.aayushatharva.brotli4j.encoder.BrotliOutputStream;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * brotli codec, registered only if native library is available
+ *
+ * @author linux_china
+ */
+public class BrotliCodec extends PipedCodec {
+    /**
+     * compression quality
+     */
+    private final int level;
+
+    /**
+     * construct method
+     *
+     * @param level      compression quality, 0-11
+     * @param bufferSize buffer size
+     */
+    public BrotliCodec(int level, int bufferSize) {
+        super(bufferSize);
+        this.level = level;
+    }
+
+    @Override
+    public String getName() {
+        return "br";
+    }
+
+    @Override
+    protected OutputStream createEncoder(OutputStream output) throws IOException {
+        Brotli4jLoader.ensureAvailability();
+        return new BrotliOutputStream(output, new Encoder.Parameters().setQuality(level), bufferSize);
+    }
+
+    @Override
+    public InputStream decode(InputStream encodedInput) throws IOException {
+        Brotli4jLoader.ensureAvailability();
+        return new BrotliInputStream(encodedInput, bufferSize);
+    }
+}
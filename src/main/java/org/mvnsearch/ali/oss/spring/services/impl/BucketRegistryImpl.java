@@ -0,0 +1,265 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.Bucket;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.BucketRegistry;
+import org.mvnsearch.ali.oss.spring.services.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * bucket registry implementation: concurrent map of bucket name to bucket metadata.
+ * buckets are reloaded in background when older than BUCKET_CACHE_TTL seconds
+ *
+ * @author linux_china
+ */
+@Component("bucketRegistry")
+public class BucketRegistryImpl implements BucketRegistry {
+    /**
+     * log
+     */
+    private static final Logger log = LoggerFactory.getLogger(BucketRegistryImpl.class);
+    /**
+     * default TTL in seconds
+     */
+    private static final long DEFAULT_TTL = 300;
+    /**
+     * aliyun oss service
+     */
+    private AliyunOssService aliyunOssService;
+    /**
+     * config service
+     */
+    private ConfigService configService;
+    /**
+     * TTL in milliseconds
+     */
+    private long ttl;
+    /**
+     * bucket name to bucket
+     */
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    /**
+     * last loaded time, 0 if never loaded
+     */
+    private volatile long loadedAt;
+    /**
+     * background refreshing mark
+     */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    /**
+     * version of local changes
+     */
+    private final AtomicLong version = new AtomicLong();
+    /**
+     * bucket name to version of its last local create or drop, kept until a later load covers it
+     */
+    private final Map<String, Long> localChanges = new ConcurrentHashMap<>();
+    /**
+     * background refresher
+     */
+    private ExecutorService refresher;
+
+    /**
+     * inject aliyun oss service
+     *
+     * @param aliyunOssService aliyun oss service
+     */
+    @Autowired
+    public void setAliyunOssService(AliyunOssService aliyunOssService) {
+        this.aliyunOssService = aliyunOssService;
+    }
+
+    /**
+     * inject config service
+     *
+     * @param configService config service
+     */
+    @Autowired
+    public void setConfigService(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    /**
+     * init refresher
+     */
+    @PostConstruct
+    public void init() {
+        ttl = configService.getLongProperty("BUCKET_CACHE_TTL", DEFAULT_TTL) * 1000;
+        refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "oss-buckets");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * shutdown refresher
+     */
+    @PreDestroy
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * get buckets sorted by name, loaded synchronously only if never loaded
+     *
+     * @return buckets
+     * @throws Exception exception
+     */
+    public List<Bucket> getBuckets() throws Exception {
+        if (loadedAt == 0) {
+            load();
+        } else if (isStale()) {
+            refreshAsync();
+        }
+        return sortedBuckets();
+    }
+
+    /**
+     * reload buckets synchronously, used after access info changed
+     *
+     * @return buckets sorted by name
+     * @throws Exception exception
+     */
+    public List<Bucket> reload() throws Exception {
+        load();
+        return sortedBuckets();
+    }
+
+    /**
+     * get bucket by name, registry is reloaded once if bucket absent and registry is stale
+     *
+     * @param name bucket name
+     * @return bucket with region and creation date, null if not found
+     * @throws Exception exception
+     */
+    @Nullable
+    public Bucket getBucket(String name) throws Exception {
+        Bucket bucket = buckets.get(name);
+        if (bucket == null && (loadedAt == 0 || isStale())) {
+            load();
+            bucket = buckets.get(name);
+        } else if (isStale()) {
+            refreshAsync();
+        }
+        return bucket;
+    }
+
+    /**
+     * get cached bucket names without blocking, used by completion
+     *
+     * @return bucket names
+     */
+    public Set<String> getBucketNames() {
+        if (loadedAt == 0 || isStale()) {
+            refreshAsync();
+        }
+        return new TreeSet<>(buckets.keySet());
+    }
+
+    /**
+     * bucket created
+     *
+     * @param bucket bucket
+     */
+    public void add(Bucket bucket) {
+        localChanges.put(bucket.getName(), version.incrementAndGet());
+        buckets.put(bucket.getName(), bucket);
+    }
+
+    /**
+     * bucket dropped
+     *
+     * @param name bucket name
+     */
+    public void remove(String name) {
+        localChanges.put(name, version.incrementAndGet());
+        buckets.remove(name);
+    }
+
+    /**
+     * reload buckets in background, used on startup
+     */
+    public void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                try {
+                    load();
+                } catch (Exception e) {
+                    log.error("buckets", e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * load all buckets and merge them.
+     * buckets created or dropped locally while loading are kept as is, because the listing may predate them
+     *
+     * @throws Exception exception
+     */
+    private synchronized void load() throws Exception {
+        long loadVersion = version.get();
+        List<Bucket> loaded = aliyunOssService.getBuckets();
+        Set<String> names = new HashSet<>();
+        //merged per key atomically, local change is recorded before bucket map is mutated
+        for (Bucket bucket : loaded) {
+            names.add(bucket.getName());
+            buckets.compute(bucket.getName(), (name, current) -> isChangedAfter(name, loadVersion) ? current : bucket);
+        }
+        for (String name : new ArrayList<>(buckets.keySet())) {
+            if (!names.contains(name)) {
+                buckets.computeIfPresent(name, (key, current) -> isChangedAfter(key, loadVersion) ? current : null);
+            }
+        }
+        localChanges.values().removeIf(changeVersion -> changeVersion <= loadVersion);
+        loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * is bucket created or dropped locally after version
+     *
+     * @param name        bucket name
+     * @param loadVersion version
+     * @return changed mark
+     */
+    private boolean isChangedAfter(String name, long loadVersion) {
+        Long changeVersion = localChanges.get(name);
+        return changeVersion != null && changeVersion > loadVersion;
+    }
+
+    /**
+     * get cached buckets sorted by name
+     *
+     * @return buckets
+     */
+    private List<Bucket> sortedBuckets() {
+        List<Bucket> result = new ArrayList<>(buckets.values());
+        result.sort(Comparator.comparing(Bucket::getName));
+        return result;
+    }
+
+    /**
+     * is registry older than TTL
+     *
+     * @return stale mark
+     */
+    private boolean isStale() {
+        return System.currentTimeMillis() - loadedAt > ttl;
+    }
+}
@@ -0,0 +1,186 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.common.comm.DefaultServiceClient;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * HTTP transport of oss client: pool size, timeouts, idle eviction and TCP keep-alive are loaded from config.
+ * keys: MAX_CONNECTIONS, MAX_CONNECTIONS_PER_ROUTE, CONNECT_TIMEOUT, SOCKET_TIMEOUT, CONNECTION_REQUEST_TIMEOUT,
+ * IDLE_CONNECTION_TIME, CONNECTION_TTL, REQUEST_TIMEOUT in seconds (0 to disable) and TCP_KEEP_ALIVE (1 or 0)
+ *
+ * @author linux_china
+ */
+public class ClientTransport {
+    /**
+     * default max connections
+     */
+    private static final long DEFAULT_MAX_CONNECTIONS = 256;
+    /**
+     * default connect timeout in seconds
+     */
+    private static final long DEFAULT_CONNECT_TIMEOUT = 10;
+    /**
+     * default socket timeout in seconds
+     */
+    private static final long DEFAULT_SOCKET_TIMEOUT = 60;
+    /**
+     * default timeout to lease connection from pool in seconds
+     */
+    private static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30;
+    /**
+     * default idle time before connection is evicted in seconds
+     */
+    private static final long DEFAULT_IDLE_CONNECTION_TIME = 60;
+    /**
+     * log
+     */
+    private static final Logger log = LoggerFactory.getLogger(ClientTransport.class);
+    /**
+     * warned mark of unavailable connection pool
+     */
+    private static final AtomicBoolean poolUnavailableWarned = new AtomicBoolean();
+
+    /**
+     * create client configuration
+     *
+     * @param configService config service
+     * @return client configuration
+     */
+    public static ClientConfiguration createConfiguration(ConfigService configService) {
+        ClientConfiguration conf = new ClientConfiguration();
+        conf.setMaxConnections((int) configService.getLongProperty("MAX_CONNECTIONS", DEFAULT_MAX_CONNECTIONS));
+        conf.setConnectionTimeout(seconds(configService.getLongProperty("CONNECT_TIMEOUT", DEFAULT_CONNECT_TIMEOUT)));
+        conf.setSocketTimeout(seconds(configService.getLongProperty("SOCKET_TIMEOUT", DEFAULT_SOCKET_TIMEOUT)));
+        conf.setConnectionRequestTimeout(seconds(configService.getLongProperty("CONNECTION_REQUEST_TIMEOUT", DEFAULT_CONNECTION_REQUEST_TIMEOUT)));
+        conf.setUseReaper(true);
+        conf.setIdleConnectionTime(configService.getLongProperty("IDLE_CONNECTION_TIME", DEFAULT_IDLE_CONNECTION_TIME) * 1000);
+        long connectionTTL = configService.getLongProperty("CONNECTION_TTL", 0);
+        conf.setConnectionTTL(connectionTTL > 0 ? connectionTTL * 1000 : -1);
+        long requestTimeout = configService.getLongProperty("REQUEST_TIMEOUT", 0);
+        conf.setRequestTimeoutEnabled(requestTimeout > 0);
+        if (requestTimeout > 0) {
+            conf.setRequestTimeout(seconds(requestTimeout));
+        }
+        return conf;
+    }
+
+    /**
+     * tune connection pool of client: per-route limit and TCP keep-alive, which are not exposed by client configuration
+     *
+     * @param oss           oss client
+     * @param configService config service
+     */
+    public static void tune(OSSClient oss, ConfigService configService) {
+        PoolingHttpClientConnectionManager connectionManager = getConnectionManager(oss);
+        if (connectionManager == null) {
+            return;
+        }
+        ClientConfiguration conf = oss.getClientConfiguration();
+        long maxPerRoute = configService.getLongProperty("MAX_CONNECTIONS_PER_ROUTE", conf.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute((int) Math.min(maxPerRoute, conf.getMaxConnections()));
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout(conf.getSocketTimeout())
+                .setTcpNoDelay(true)
+                .setSoKeepAlive(configService.getLongProperty("TCP_KEEP_ALIVE", 1) != 0)
+                .build());
+    }
+
+    /**
+     * get pool stats, total first and then every route
+     *
+     * @param oss oss client
+     * @return pool stats by name, empty if pool not available
+     */
+    public static Map<String, PoolStats> getPoolStats(OSSClient oss) {
+        Map<String, PoolStats> stats = new LinkedHashMap<>();
+        PoolingHttpClientConnectionManager connectionManager = getConnectionManager(oss);
+        if (connectionManager != null) {
+            stats.put("total", connectionManager.getTotalStats());
+            for (HttpRoute route : connectionManager.getRoutes()) {
+                stats.put(route.getTargetHost().toHostString(), connectionManager.getStats(route));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * check whether no connection is leased or pending in pool of client
+     *
+     * @param oss oss client
+     * @return idle mark, true if pool not available
+     */
+    public static boolean isIdle(OSSClient oss) {
+        PoolingHttpClientConnectionManager connectionManager = getConnectionManager(oss);
+        if (connectionManager == null) {
+            return true;
+        }
+        PoolStats stats = connectionManager.getTotalStats();
+        return stats.getLeased() == 0 && stats.getPending() == 0;
+    }
+
+    /**
+     * get pooling connection manager of oss client, which is kept in private fields of the SDK:
+     * OSSClient.serviceClient and DefaultServiceClient.connectionManager, checked by test against the pinned SDK version
+     *
+     * @param oss oss client
+     * @return connection manager, null if not available
+     */
+    @Nullable
+    static PoolingHttpClientConnectionManager getConnectionManager(OSSClient oss) {
+        try {
+            Field serviceClientField = OSSClient.class.getDeclaredField("serviceClient");
+            serviceClientField.setAccessible(true);
+            Object serviceClient = serviceClientField.get(oss);
+            if (!(serviceClient instanceof DefaultServiceClient)) {
+                warnUnavailable("unexpected service client " + serviceClient);
+                return null;
+            }
+            Field connectionManagerField = DefaultServiceClient.class.getDeclaredField("connectionManager");
+            connectionManagerField.setAccessible(true);
+            Object connectionManager = connectionManagerField.get(serviceClient);
+            if (connectionManager instanceof PoolingHttpClientConnectionManager) {
+                return (PoolingHttpClientConnectionManager) connectionManager;
+            }
+            warnUnavailable("unexpected connection manager " + connectionManager);
+            return null;
+        } catch (Exception e) {
+            warnUnavailable(e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * log warning once when connection pool of SDK is not reachable, such as fields renamed after SDK upgrade
+     *
+     * @param reason reason
+     */
+    private static void warnUnavailable(String reason) {
+        if (poolUnavailableWarned.compareAndSet(false, true)) {
+            log.warn("Connection pool of OSS client not available, per-route limit, keep-alive and pool stats disabled: " + reason);
+        }
+    }
+
+    /**
+     * seconds to milliseconds
+     *
+     * @param seconds seconds
+     * @return milliseconds
+     */
+    private static int seconds(long seconds) {
+        return (int) Math.min(Integer.MAX_VALUE, seconds * 1000);
+    }
+}
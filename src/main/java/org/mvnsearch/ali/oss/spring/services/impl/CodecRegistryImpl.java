@@ -0,0 +1,112 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.Codec;
+import org.mvnsearch.ali.oss.spring.services.CodecRegistry;
+import org.mvnsearch.ali.oss.spring.services.ConfigService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * codec registry implementation: gzip, zstd and brotli if native library available, levels are read from GZIP_LEVEL, ZSTD_LEVEL and BR_LEVEL
+ *
+ * @author linux_china
+ */
+@Component("codecRegistry")
+public class CodecRegistryImpl implements CodecRegistry {
+    /**
+     * default buffer size of codec streams, 64K
+     */
+    private static final long DEFAULT_BUFFER_SIZE = 64 * 1024L;
+    /**
+     * default block size of parallel gzip compression, 1M
+     */
+    private static final long DEFAULT_GZIP_BLOCK_SIZE = 1024 * 1024L;
+    /**
+     * default zstd level
+     */
+    private static final long DEFAULT_ZSTD_LEVEL = 3;
+    /**
+     * default brotli quality, max quality 11 is too slow for uploading
+     */
+    private static final long DEFAULT_BR_LEVEL = 5;
+    /**
+     * log
+     */
+    private static final Logger log = LoggerFactory.getLogger(CodecRegistryImpl.class);
+    /**
+     * config service
+     */
+    private ConfigService configService;
+    /**
+     * codecs
+     */
+    private final Map<String, Codec> codecs = new LinkedHashMap<>();
+
+    /**
+     * inject config service
+     *
+     * @param configService config service
+     */
+    @Autowired
+    public void setConfigService(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    /**
+     * register codecs with configured levels
+     */
+    @PostConstruct
+    public void init() {
+        int bufferSize = (int) configService.getLongProperty("GZIP_BUFFER_SIZE", DEFAULT_BUFFER_SIZE);
+        register(new GzipCodec((int) configService.getLongProperty("GZIP_LEVEL", Deflater.DEFAULT_COMPRESSION), bufferSize,
+                (int) configService.getLongProperty("GZIP_BLOCK_SIZE", DEFAULT_GZIP_BLOCK_SIZE),
+                (int) configService.getLongProperty("GZIP_THREADS", Runtime.getRuntime().availableProcessors())));
+        register(new ZstdCodec((int) configService.getLongProperty("ZSTD_LEVEL", DEFAULT_ZSTD_LEVEL), bufferSize));
+        //brotli native library is packaged for the build platform only, br is hidden if it can not be loaded
+        if (Brotli4jLoader.isAvailable()) {
+            register(new BrotliCodec((int) configService.getLongProperty("BR_LEVEL", DEFAULT_BR_LEVEL), bufferSize));
+        } else {
+            log.warn("Brotli native library not available, br codec disabled", Brotli4jLoader.getUnavailabilityCause());
+        }
+    }
+
+    /**
+     * register codec
+     *
+     * @param codec codec
+     */
+    private void register(Codec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * get codec by name or Content-Encoding
+     *
+     * @param name codec name, case insensitive
+     * @return codec, null if not supported
+     */
+    @Nullable
+    public Codec getCodec(@Nullable String name) {
+        return name == null ? null : codecs.get(name.trim().toLowerCase());
+    }
+
+    /**
+     * get supported codec names
+     *
+     * @return codec names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(codecs.keySet());
+    }
+}
@@ -1,5 +1,7 @@
 package org.mvnsearch.ali.oss.spring.services.impl;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.jetbrains.annotations.Nullable;
 import org.mvnsearch.ali.oss.spring.services.ConfigService;
 import org.springframework.stereotype.Component;
@@ -21,10 +23,34 @@ public class ConfigServiceImpl implements ConfigService {
      * configuration file name
      */
     private final String cfgFileName = ".aliyunoss.cfg";
+    /**
+     * work directory name
+     */
+    private final String workDirName = ".aliyunoss";
     /**
      * global properties
      */
     private Properties properties;
+    /**
+     * home directory of configuration file and work directory
+     */
+    private final File homeDir;
+
+    /**
+     * construct method, configuration is located in user home
+     */
+    public ConfigServiceImpl() {
+        this(new File(System.getProperty("user.home")));
+    }
+
+    /**
+     * construct method
+     *
+     * @param homeDir home directory of configuration file and work directory
+     */
+    ConfigServiceImpl(File homeDir) {
+        this.homeDir = homeDir;
+    }
 
     /**
      * post construct
@@ -33,7 +59,7 @@ public class ConfigServiceImpl implements ConfigService {
     public void init() {
         try {
             properties = new Properties();
-            File cfgFile = new File(new File(System.getProperty("user.home")), cfgFileName);
+            File cfgFile = new File(homeDir, cfgFileName);
             if (cfgFile.exists()) {
                 properties.load(new FileInputStream(cfgFile));
             }
@@ -63,6 +89,28 @@ public class ConfigServiceImpl implements ConfigService {
         return properties.getProperty(key);
     }
 
+    /**
+     * get work directory for transfer state such as checkpoints, located in user home
+     *
+     * @return work directory
+     */
+    @Override
+    public File getWorkDirectory() {
+        return new File(homeDir, workDirName);
+    }
+
+    /**
+     * get configuration as long value
+     *
+     * @param key          key
+     * @param defaultValue default value if absent or not a number
+     * @return value
+     */
+    @Override
+    public long getLongProperty(String key, long defaultValue) {
+        return NumberUtils.toLong(StringUtils.trim(properties.getProperty(key)), defaultValue);
+    }
+
     /**
      * update config
      *
@@ -72,7 +120,7 @@ public class ConfigServiceImpl implements ConfigService {
     @Override
     public void setProperty(String key, @Nullable String value) {
         try {
-            File cfgFile = new File(new File(System.getProperty("user.home")), cfgFileName);
+            File cfgFile = new File(homeDir, cfgFileName);
             if (value == null) {
                 properties.remove(key);
             } else {
@@ -94,7 +142,7 @@ public class ConfigServiceImpl implements ConfigService {
         try {
             properties.setProperty("ACCESS_ID", accessId);
             properties.setProperty("ACCESS_KEY", accessKey);
-            File cfgFile = new File(new File(System.getProperty("user.home")), cfgFileName);
+            File cfgFile = new File(homeDir, cfgFileName);
             properties.store(new FileOutputStream(cfgFile), null);
         } catch (Exception ignore) {
 
@@ -0,0 +1,182 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.ObjectMetadata;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * ranged download checkpoint, stored as sidecar properties file next to the dest file.
+ * completed chunks are recorded as index ranges, such as 0-15,18,20-31
+ *
+ * @author linux_china
+ */
+public class DownloadCheckpoint {
+    /**
+     * sidecar file suffix
+     */
+    public static final String SUFFIX = ".ossdownload";
+    /**
+     * checkpoint file
+     */
+    private final File checkpointFile;
+    /**
+     * object ETag
+     */
+    private String etag;
+    /**
+     * object last modified time
+     */
+    private long lastModified;
+    /**
+     * object size
+     */
+    private long objectSize;
+    /**
+     * chunk size
+     */
+    private long chunkSize;
+    /**
+     * completed chunks
+     */
+    private final BitSet chunks = new BitSet();
+
+    /**
+     * construct method
+     *
+     * @param destFile dest file
+     */
+    public DownloadCheckpoint(File destFile) {
+        this.checkpointFile = new File(destFile.getParentFile(), destFile.getName() + SUFFIX);
+    }
+
+    /**
+     * load checkpoint from sidecar file
+     *
+     * @return checkpoint loaded mark
+     */
+    public boolean load() {
+        if (!checkpointFile.exists()) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(checkpointFile)) {
+            properties.load(input);
+            etag = properties.getProperty("etag");
+            lastModified = Long.parseLong(properties.getProperty("lastModified"));
+            objectSize = Long.parseLong(properties.getProperty("objectSize"));
+            chunkSize = Long.parseLong(properties.getProperty("chunkSize"));
+            String ranges = properties.getProperty("chunks", "");
+            for (String range : ranges.split(",")) {
+                if (!range.isEmpty()) {
+                    String[] parts = range.split("-");
+                    int from = Integer.parseInt(parts[0]);
+                    int to = parts.length > 1 ? Integer.parseInt(parts[1]) : from;
+                    chunks.set(from, to + 1);
+                }
+            }
+            return true;
+        } catch (Exception ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * validate checkpoint: object should not be changed since last download
+     *
+     * @param objectMetadata object metadata
+     * @param chunkSize      chunk size
+     * @return valid mark
+     */
+    public boolean isValidFor(ObjectMetadata objectMetadata, long chunkSize) {
+        return Objects.equals(etag, objectMetadata.getETag())
+                && objectMetadata.getLastModified() != null && lastModified == objectMetadata.getLastModified().getTime()
+                && objectSize == objectMetadata.getContentLength()
+                && this.chunkSize == chunkSize;
+    }
+
+    /**
+     * start new checkpoint
+     *
+     * @param objectMetadata object metadata
+     * @param chunkSize      chunk size
+     * @throws Exception exception
+     */
+    public synchronized void start(ObjectMetadata objectMetadata, long chunkSize) throws Exception {
+        this.etag = objectMetadata.getETag();
+        this.lastModified = objectMetadata.getLastModified() == null ? 0 : objectMetadata.getLastModified().getTime();
+        this.objectSize = objectMetadata.getContentLength();
+        this.chunkSize = chunkSize;
+        this.chunks.clear();
+        store();
+    }
+
+    /**
+     * is chunk completed
+     *
+     * @param index chunk index
+     * @return completed mark
+     */
+    public synchronized boolean isCompleted(int index) {
+        return chunks.get(index);
+    }
+
+    /**
+     * record completed chunk and persist checkpoint
+     *
+     * @param index chunk index
+     * @throws Exception exception
+     */
+    public synchronized void complete(int index) throws Exception {
+        chunks.set(index);
+        store();
+    }
+
+    /**
+     * persist checkpoint
+     *
+     * @throws Exception exception
+     */
+    private void store() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("etag", etag == null ? "" : etag);
+        properties.setProperty("lastModified", String.valueOf(lastModified));
+        properties.setProperty("objectSize", String.valueOf(objectSize));
+        properties.setProperty("chunkSize", String.valueOf(chunkSize));
+        StringBuilder ranges = new StringBuilder();
+        int from = chunks.nextSetBit(0);
+        while (from >= 0) {
+            int to = chunks.nextClearBit(from) - 1;
+            if (ranges.length() > 0) {
+                ranges.append(',');
+            }
+            ranges.append(from);
+            if (to > from) {
+                ranges.append('-').append(to);
+            }
+            from = chunks.nextSetBit(to + 1);
+        }
+        properties.setProperty("chunks", ranges.toString());
+        File tempFile = new File(checkpointFile.getParentFile(), checkpointFile.getName() + ".tmp");
+        try (OutputStream output = new FileOutputStream(tempFile)) {
+            properties.store(output, null);
+        }
+        Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * delete sidecar file
+     */
+    public void delete() {
+        FileUtils.deleteQuietly(checkpointFile);
+    }
+}
@@ -0,0 +1,212 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.FileHashes;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * persistent local hash cache: path -> size, mtime, inode, MD5, CRC64 and the remote ETag verified as same content.
+ * file is re-hashed only if its stat info changed, and the cache is stored in compact binary format
+ *
+ * @author linux_china
+ */
+public class FileHashCache {
+    /**
+     * cache file format version
+     */
+    private static final int VERSION = 2;
+    /**
+     * cache file
+     */
+    private final File cacheFile;
+    /**
+     * entries
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * paths seen in current walk
+     */
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    /**
+     * dirty mark
+     */
+    private volatile boolean dirty;
+
+    /**
+     * cached entry
+     */
+    private static class Entry {
+        private final long size;
+        private final long lastModified;
+        private final long inode;
+        private final byte[] md5;
+        private final long crc64;
+        private final String remoteETag;
+
+        Entry(long size, long lastModified, long inode, byte[] md5, long crc64, String remoteETag) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.inode = inode;
+            this.md5 = md5;
+            this.crc64 = crc64;
+            this.remoteETag = remoteETag;
+        }
+    }
+
+    /**
+     * construct method
+     *
+     * @param cacheFile cache file
+     */
+    public FileHashCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * load cache from file, broken cache file will be ignored
+     */
+    public void load() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (input.readInt() != VERSION) {
+                return;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = input.readUTF();
+                long size = input.readLong();
+                long lastModified = input.readLong();
+                long inode = input.readLong();
+                byte[] md5 = new byte[16];
+                input.readFully(md5);
+                long crc64 = input.readLong();
+                String remoteETag = input.readUTF();
+                entries.put(path, new Entry(size, lastModified, inode, md5, crc64, remoteETag));
+            }
+        } catch (Exception ignore) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * get hashes of file, re-hash it if stat info changed
+     *
+     * @param file file
+     * @return file hashes
+     * @throws Exception exception
+     */
+    public FileHashes getHashes(File file) throws Exception {
+        String path = file.getAbsolutePath();
+        seen.add(path);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        long inode = getInode(file);
+        Entry entry = entries.get(path);
+        if (entry != null && entry.size == size && entry.lastModified == lastModified && entry.inode == inode) {
+            return new FileHashes(entry.md5, entry.crc64);
+        }
+        FileHashes fileHashes = FileHashes.of(file);
+        entries.put(path, new Entry(size, lastModified, inode, fileHashes.getMd5(), fileHashes.getCrc64(), ""));
+        dirty = true;
+        return fileHashes;
+    }
+
+    /**
+     * get remote ETag verified as same content of file, cleared when file is re-hashed
+     *
+     * @param file file, hashes should be got first
+     * @return ETag, null if not verified
+     */
+    @Nullable
+    public String getVerifiedETag(File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        return entry == null || entry.remoteETag.isEmpty() ? null : entry.remoteETag;
+    }
+
+    /**
+     * record remote ETag verified as same content of file, such as multipart ETag checked with CRC64
+     *
+     * @param file file, hashes should be got first
+     * @param etag ETag
+     */
+    public void setVerifiedETag(File file, String etag) {
+        entries.computeIfPresent(file.getAbsolutePath(), (path, entry) ->
+                new Entry(entry.size, entry.lastModified, entry.inode, entry.md5, entry.crc64, etag));
+        dirty = true;
+    }
+
+    /**
+     * mark file seen in current walk, its entry is kept by prune
+     *
+     * @param file file
+     */
+    public void markSeen(File file) {
+        seen.add(file.getAbsolutePath());
+    }
+
+    /**
+     * remove entries of files under directory which are not seen in current walk, such as deleted or renamed files
+     *
+     * @param dir walked directory
+     */
+    public void prune(File dir) {
+        String dirPrefix = dir.getAbsolutePath() + File.separator;
+        if (entries.keySet().removeIf(path -> path.startsWith(dirPrefix) && !seen.contains(path))) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * save cache to file if changed
+     *
+     * @throws Exception exception
+     */
+    public void save() throws Exception {
+        if (!dirty) {
+            return;
+        }
+        FileUtils.forceMkdir(cacheFile.getParentFile());
+        File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            Map<String, Entry> snapshot = Map.copyOf(entries);
+            output.writeInt(VERSION);
+            output.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> item : snapshot.entrySet()) {
+                Entry entry = item.getValue();
+                output.writeUTF(item.getKey());
+                output.writeLong(entry.size);
+                output.writeLong(entry.lastModified);
+                output.writeLong(entry.inode);
+                output.write(entry.md5);
+                output.writeLong(entry.crc64);
+                output.writeUTF(entry.remoteETag);
+            }
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    /**
+     * get inode of file, 0 if file system does not support it
+     *
+     * @param file file
+     * @return inode
+     */
+    private static long getInode(File file) {
+        try {
+            Object inode = Files.getAttribute(file.toPath(), "unix:ino");
+            return inode instanceof Number ? ((Number) inode).longValue() : 0;
+        } catch (Exception ignore) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.mvnsearch.ali.oss.spring.services.Codec;
+import org.mvnsearch.ali.oss.spring.services.ZipUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * gzip codec, content larger than one block is compressed with parallel block compression
+ *
+ * @author linux_china
+ */
+public class GzipCodec implements Codec {
+    /**
+     * compression level
+     */
+    private final int level;
+    /**
+     * buffer size
+     */
+    private final int bufferSize;
+    /**
+     * block size of parallel compression
+     */
+    private final int blockSize;
+    /**
+     * compression threads
+     */
+    private final int threads;
+
+    /**
+     * construct method
+     *
+     * @param level      compression level
+     * @param bufferSize buffer size
+     * @param blockSize  block size of parallel compression
+     * @param threads    compression threads
+     */
+    public GzipCodec(int level, int bufferSize, int blockSize, int threads) {
+        this.level = level;
+        this.bufferSize = bufferSize;
+        this.blockSize = blockSize;
+        this.threads = threads;
+    }
+
+    @Override
+    public String getName() {
+        return "gzip";
+    }
+
+    @Override
+    public InputStream encode(InputStream plainInput, long length) {
+        if (threads > 1 && length > blockSize) {
+            return ZipUtils.compressParallel(plainInput, level, blockSize, threads);
+        }
+        return ZipUtils.compress(plainInput, level, bufferSize);
+    }
+
+    @Override
+    public InputStream decode(InputStream encodedInput) throws IOException {
+        return new GZIPInputStream(encodedInput, bufferSize);
+    }
+}
@@ -0,0 +1,335 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.ConfigService;
+import org.mvnsearch.ali.oss.spring.services.ListingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * listing cache implementation: LRU map of bucket and prefix to first page of delimiter listing.
+ * entries younger than LISTING_CACHE_TTL seconds are fresh, entries younger than ten times TTL are served to completion
+ * while refreshed in background, older entries are loaded again. Loads started before an invalidation are not cached
+ *
+ * @author linux_china
+ */
+@Component("listingCache")
+public class ListingCacheImpl implements ListingCache {
+    /**
+     * log
+     */
+    private static final Logger log = LoggerFactory.getLogger(ListingCacheImpl.class);
+    /**
+     * default TTL in seconds
+     */
+    private static final long DEFAULT_TTL = 30;
+    /**
+     * default max cached listings
+     */
+    private static final long DEFAULT_SIZE = 1000;
+    /**
+     * default max prefixes prefetched for one listing
+     */
+    private static final long DEFAULT_PREFETCH = 16;
+    /**
+     * background loading threads
+     */
+    private static final int LOADER_THREADS = 4;
+    /**
+     * queued background loading
+     */
+    private static final int LOADER_QUEUE = 256;
+    /**
+     * aliyun oss service
+     */
+    private AliyunOssService aliyunOssService;
+    /**
+     * config service
+     */
+    private ConfigService configService;
+    /**
+     * TTL in milliseconds
+     */
+    private long ttl;
+    /**
+     * max prefixes prefetched for one listing, 0 to disable prefetch
+     */
+    private int prefetchLimit;
+    /**
+     * cached listings in access order
+     */
+    private Map<String, Entry> entries;
+    /**
+     * invalidation generation, guarded by entries
+     */
+    private long generation;
+    /**
+     * keys being loaded in background
+     */
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    /**
+     * background loader
+     */
+    private ThreadPoolExecutor loader;
+
+    /**
+     * cached listing
+     */
+    private static class Entry {
+        private final ObjectListing listing;
+        private final long loadedAt;
+
+        Entry(ObjectListing listing, long loadedAt) {
+            this.listing = listing;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * inject aliyun oss service
+     *
+     * @param aliyunOssService aliyun oss service
+     */
+    @Autowired
+    public void setAliyunOssService(AliyunOssService aliyunOssService) {
+        this.aliyunOssService = aliyunOssService;
+    }
+
+    /**
+     * inject config service
+     *
+     * @param configService config service
+     */
+    @Autowired
+    public void setConfigService(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    /**
+     * init cache and background loader
+     */
+    @PostConstruct
+    public void init() {
+        ttl = configService.getLongProperty("LISTING_CACHE_TTL", DEFAULT_TTL) * 1000;
+        int size = (int) configService.getLongProperty("LISTING_CACHE_SIZE", DEFAULT_SIZE);
+        prefetchLimit = (int) configService.getLongProperty("LISTING_PREFETCH", DEFAULT_PREFETCH);
+        entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > size;
+            }
+        };
+        AtomicInteger counter = new AtomicInteger();
+        loader = new ThreadPoolExecutor(LOADER_THREADS, LOADER_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(LOADER_QUEUE), runnable -> {
+            Thread thread = new Thread(runnable, "oss-listing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * shutdown background loader
+     */
+    @PreDestroy
+    public void destroy() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * get delimiter listing of prefix: fresh entry is returned directly, stale entry is returned and refreshed
+     * asynchronously only if stale allowed, narrower prefix is answered from a complete cached listing of wider prefix in same directory
+     *
+     * @param bucketName bucket name
+     * @param prefix     raw prefix, such as "logs/" or "logs/app"
+     * @param allowStale serve stale entry, such as completion, ls should see fresh listing
+     * @return object listing, first page only
+     * @throws Exception exception
+     */
+    public ObjectListing getListing(String bucketName, String prefix, boolean allowStale) throws Exception {
+        prefix = StringUtils.defaultString(prefix);
+        long now = System.currentTimeMillis();
+        //exact prefix, then wider prefixes in same directory
+        int dirLength = prefix.lastIndexOf('/') + 1;
+        for (int length = prefix.length(); length >= dirLength; length--) {
+            String widerPrefix = prefix.substring(0, length);
+            Entry entry = getEntry(bucketName, widerPrefix);
+            if (entry == null || now - entry.loadedAt > ttl * 10 || (length < prefix.length() && entry.listing.isTruncated())) {
+                continue;
+            }
+            if (now - entry.loadedAt > ttl) {
+                if (!allowStale) {
+                    continue;
+                }
+                refreshAsync(bucketName, widerPrefix);
+            }
+            return length == prefix.length() ? entry.listing : narrow(entry.listing, prefix);
+        }
+        return load(bucketName, prefix);
+    }
+
+    /**
+     * load listing of prefix in background if it is absent or stale
+     *
+     * @param bucketName bucket name
+     * @param prefix     raw prefix
+     */
+    public void refreshAsync(String bucketName, String prefix) {
+        String prefixKey = StringUtils.defaultString(prefix);
+        Entry entry = getEntry(bucketName, prefixKey);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt <= ttl) {
+            return;
+        }
+        String cacheKey = getCacheKey(bucketName, prefixKey);
+        if (loading.add(cacheKey)) {
+            try {
+                loader.execute(() -> {
+                    try {
+                        load(bucketName, prefixKey);
+                    } catch (Exception e) {
+                        log.error("listing", e);
+                    } finally {
+                        loading.remove(cacheKey);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                //queue is full, the listing will be loaded on demand
+                loading.remove(cacheKey);
+            }
+        }
+    }
+
+    /**
+     * prefetch listings of prefixes in background, at most LISTING_PREFETCH prefixes are loaded for one call
+     * and loading is bounded by the background loader threads
+     *
+     * @param bucketName bucket name
+     * @param prefixes   prefixes
+     */
+    public void prefetch(String bucketName, List<String> prefixes) {
+        for (int i = 0; i < prefixes.size() && i < prefetchLimit; i++) {
+            refreshAsync(bucketName, prefixes.get(i));
+        }
+    }
+
+    /**
+     * invalidate cached listings affected by mutation of key or prefix: listings of its ancestors
+     * and listings inside the prefix are removed
+     *
+     * @param bucketName bucket name
+     * @param key        mutated object key or prefix
+     */
+    public void invalidate(String bucketName, String key) {
+        String bucketPrefix = getCacheKey(bucketName, "");
+        String mutated = StringUtils.removeEnd(StringUtils.defaultString(key), "*");
+        synchronized (entries) {
+            generation++;
+            entries.keySet().removeIf(cacheKey -> {
+                if (!cacheKey.startsWith(bucketPrefix)) {
+                    return false;
+                }
+                String prefix = cacheKey.substring(bucketPrefix.length());
+                return mutated.startsWith(prefix) || prefix.startsWith(mutated);
+            });
+        }
+    }
+
+    /**
+     * invalidate all cached listings
+     */
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    /**
+     * load listing and put it into cache, listing is not cached if invalidated during loading
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @return object listing
+     * @throws Exception exception
+     */
+    private ObjectListing load(String bucketName, String prefix) throws Exception {
+        long loadGeneration;
+        synchronized (entries) {
+            loadGeneration = generation;
+        }
+        ObjectListing listing = aliyunOssService.listChildrenByPrefix(bucketName, prefix, AliyunOssService.MAX_OBJECTS);
+        synchronized (entries) {
+            if (generation == loadGeneration) {
+                entries.put(getCacheKey(bucketName, prefix), new Entry(listing, System.currentTimeMillis()));
+            }
+        }
+        return listing;
+    }
+
+    /**
+     * get cached entry
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @return entry, null if absent
+     */
+    @Nullable
+    private Entry getEntry(String bucketName, String prefix) {
+        synchronized (entries) {
+            return entries.get(getCacheKey(bucketName, prefix));
+        }
+    }
+
+    /**
+     * narrow complete listing of wider prefix to prefix
+     *
+     * @param listing listing of wider prefix
+     * @param prefix  prefix
+     * @return listing of prefix
+     */
+    private static ObjectListing narrow(ObjectListing listing, String prefix) {
+        ObjectListing narrowed = new ObjectListing();
+        narrowed.setBucketName(listing.getBucketName());
+        narrowed.setPrefix(prefix);
+        narrowed.setDelimiter(listing.getDelimiter());
+        narrowed.setMaxKeys(listing.getMaxKeys());
+        narrowed.setTruncated(false);
+        for (String commonPrefix : listing.getCommonPrefixes()) {
+            if (commonPrefix.startsWith(prefix)) {
+                narrowed.addCommonPrefix(commonPrefix);
+            }
+        }
+        for (OSSObjectSummary objectSummary : listing.getObjectSummaries()) {
+            if (objectSummary.getKey().startsWith(prefix)) {
+                narrowed.addObjectSummary(objectSummary);
+            }
+        }
+        return narrowed;
+    }
+
+    /**
+     * get cache key
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @return cache key
+     */
+    private static String getCacheKey(String bucketName, String prefix) {
+        return bucketName + ":" + prefix;
+    }
+}
@@ -0,0 +1,85 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.model.*;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.BoundedExecutor;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.services.RetryUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * multipart server-side copy with UploadPartCopy, used for objects above the single copy limit.
+ * parts are copied concurrently and pinned to source ETag, so that a changed source fails the copy
+ *
+ * @author linux_china
+ */
+public class MultipartCopier {
+    /**
+     * oss client
+     */
+    private final OSSClient oss;
+    /**
+     * part size
+     */
+    private final long partSize;
+    /**
+     * parts in flight
+     */
+    private final int parallel;
+
+    /**
+     * construct method
+     *
+     * @param oss      oss client
+     * @param partSize part size
+     * @param parallel parts in flight
+     */
+    public MultipartCopier(OSSClient oss, long partSize, int parallel) {
+        this.oss = oss;
+        this.partSize = partSize;
+        this.parallel = Math.max(1, parallel);
+    }
+
+    /**
+     * copy object with multipart copy
+     *
+     * @param sourceObjectUri source object uri
+     * @param destObjectUri   dest object uri
+     * @param objectMetadata  metadata for dest object, content length should be absent
+     * @param objectSize      source object size
+     * @param etag            source object ETag, null if not pinned
+     * @return complete result
+     * @throws Exception exception
+     */
+    public CompleteMultipartUploadResult copy(OSSUri sourceObjectUri, OSSUri destObjectUri, ObjectMetadata objectMetadata, long objectSize, @Nullable String etag) throws Exception {
+        String bucket = destObjectUri.getBucket();
+        String key = destObjectUri.getFilePath();
+        long size = Math.max(partSize, (objectSize + MultipartUploader.MAX_PARTS - 1) / MultipartUploader.MAX_PARTS);
+        int partCount = (int) ((objectSize + size - 1) / size);
+        String uploadId = oss.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, objectMetadata)).getUploadId();
+        try (BoundedExecutor executor = new BoundedExecutor("oss-copy-part", parallel)) {
+            PartETag[] partETags = new PartETag[partCount];
+            for (int i = 0; i < partCount; i++) {
+                final int index = i;
+                final long beginIndex = i * size;
+                final long length = Math.min(size, objectSize - beginIndex);
+                executor.submit(() -> partETags[index] = RetryUtils.call(() -> {
+                    UploadPartCopyRequest request = new UploadPartCopyRequest(sourceObjectUri.getBucket(), sourceObjectUri.getFilePath(),
+                            bucket, key, uploadId, index + 1, beginIndex, length);
+                    if (etag != null) {
+                        request.setMatchingETagConstraints(Collections.singletonList(etag));
+                    }
+                    return oss.uploadPartCopy(request).getPartETag();
+                }));
+            }
+            executor.await();
+            return oss.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, Arrays.asList(partETags)));
+        } catch (Exception e) {
+            oss.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.*;
+import org.apache.commons.io.IOUtils;
+import org.mvnsearch.ali.oss.spring.services.BoundedExecutor;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.services.RetryUtils;
+import org.mvnsearch.ali.oss.spring.services.TransferOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * multipart upload engine: parts are read with positional reads from file channel,
+ * so heap usage is bounded by part size * parallel instead of file size. Parts are uploaded concurrently
+ * and retried individually, the upload is completed after all part ETags collected. The upload id is
+ * recorded in {@link UploadCheckpoint}, so an interrupted upload can be resumed from the parts listed on OSS
+ *
+ * @author linux_china
+ */
+public class MultipartUploader {
+    /**
+     * max part count of one multipart upload
+     */
+    public static final int MAX_PARTS = 10000;
+    /**
+     * min part size, 100K
+     */
+    public static final long MIN_PART_SIZE = 100 * 1024L;
+    /**
+     * oss client
+     */
+    private final OSSClient oss;
+    /**
+     * part size
+     */
+    private final long partSize;
+    /**
+     * checkpoint directory
+     */
+    private final File checkpointDir;
+
+    /**
+     * construct method
+     *
+     * @param oss           oss client
+     * @param partSize      part size
+     * @param checkpointDir checkpoint directory
+     */
+    public MultipartUploader(OSSClient oss, long partSize, File checkpointDir) {
+        this.oss = oss;
+        this.partSize = partSize;
+        this.checkpointDir = checkpointDir;
+    }
+
+    /**
+     * get part size for file, adjusted to keep part count under MAX_PARTS
+     *
+     * @param fileLength file length
+     * @return part size
+     */
+    public long getPartSize(long fileLength) {
+        long size = Math.max(partSize, MIN_PART_SIZE);
+        long minSize = (fileLength + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(size, minSize);
+    }
+
+    /**
+     * upload file with multipart upload. If failed, the upload is aborted unless resume required,
+     * otherwise the upload and checkpoint are kept for next run with resume
+     *
+     * @param sourceFile     source file
+     * @param destObject     dest object
+     * @param objectMetadata object metadata, content length should be absent
+     * @param options        transfer options: parallel part count and resume mark
+     * @return complete result
+     * @throws Exception exception
+     */
+    public CompleteMultipartUploadResult upload(File sourceFile, OSSUri destObject, ObjectMetadata objectMetadata, TransferOptions options) throws Exception {
+        String bucket = destObject.getBucket();
+        String key = destObject.getFilePath();
+        long fileLength = sourceFile.length();
+        long size = getPartSize(fileLength);
+        int partCount = (int) ((fileLength + size - 1) / size);
+        PartETag[] partETags = new PartETag[partCount];
+        UploadCheckpoint checkpoint = new UploadCheckpoint(UploadCheckpoint.getCheckpointFile(checkpointDir, sourceFile, destObject));
+        String uploadId = null;
+        if (checkpoint.load()) {
+            if (options.isResume() && checkpoint.isValidFor(sourceFile, size)) {
+                uploadId = checkpoint.getUploadId();
+                if (!loadUploadedParts(bucket, key, uploadId, fileLength, size, partETags)) {
+                    uploadId = null;
+                }
+            } else {
+                abortQuietly(bucket, key, checkpoint.getUploadId());
+            }
+        }
+        if (uploadId == null) {
+            InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(bucket, key, objectMetadata);
+            uploadId = oss.initiateMultipartUpload(initRequest).getUploadId();
+            Arrays.fill(partETags, null);
+            checkpoint.start(uploadId, sourceFile, size);
+        }
+        final String finalUploadId = uploadId;
+        int threads = Math.max(1, Math.min(options.getParallel(), partCount));
+        BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            buffers.add(ByteBuffer.allocate((int) size));
+        }
+        try {
+            try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+                 BoundedExecutor executor = new BoundedExecutor("oss-upload", threads)) {
+                for (int i = 0; i < partCount; i++) {
+                    if (partETags[i] != null) {
+                        continue;
+                    }
+                    final int partNumber = i + 1;
+                    final long position = i * size;
+                    final int length = (int) Math.min(size, fileLength - position);
+                    executor.submit(() -> {
+                        ByteBuffer buffer = buffers.take();
+                        try {
+                            readFully(channel, buffer, position, length);
+                            partETags[partNumber - 1] = RetryUtils.call(() -> {
+                                UploadPartRequest partRequest = new UploadPartRequest(bucket, key, finalUploadId, partNumber,
+                                        new ByteArrayInputStream(buffer.array(), 0, length), length);
+                                return oss.uploadPart(partRequest).getPartETag();
+                            });
+                        } finally {
+                            buffers.add(buffer);
+                        }
+                    });
+                }
+                executor.await();
+            }
+            CompleteMultipartUploadResult result = oss.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, Arrays.asList(partETags)));
+            checkpoint.delete();
+            return result;
+        } catch (Exception e) {
+            //uploaded parts are billed storage, keep them only for resume
+            if (!options.isResume()) {
+                abortQuietly(bucket, key, uploadId);
+                checkpoint.delete();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * upload stream of unknown length, such as compressed content. Content shorter than one part is uploaded
+     * with single put, otherwise parts are read sequentially and uploaded concurrently.
+     * resume is not supported because the stream can not be re-read from a position
+     *
+     * @param input          input stream
+     * @param destObject     dest object
+     * @param objectMetadata object metadata, content length should be absent
+     * @param parallel       parts in flight
+     * @return uploaded length
+     * @throws Exception exception
+     */
+    public long upload(InputStream input, OSSUri destObject, ObjectMetadata objectMetadata, int parallel) throws Exception {
+        String bucket = destObject.getBucket();
+        String key = destObject.getFilePath();
+        int size = (int) Math.max(partSize, MIN_PART_SIZE);
+        byte[] first = new byte[size];
+        int firstLength = IOUtils.read(input, first);
+        if (firstLength < size) {
+            objectMetadata.setContentLength(firstLength);
+            RetryUtils.call(() -> oss.putObject(bucket, key, new ByteArrayInputStream(first, 0, firstLength), objectMetadata));
+            return firstLength;
+        }
+        String uploadId = oss.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucket, key, objectMetadata)).getUploadId();
+        int threads = Math.max(1, parallel);
+        //buffers are recycled after part uploaded, at most threads + 1 buffers are allocated
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(threads + 1);
+        List<PartETag> partETags = new ArrayList<>();
+        long uploaded = 0;
+        try (BoundedExecutor executor = new BoundedExecutor("oss-upload", threads)) {
+            int partNumber = 0;
+            byte[] buffer = first;
+            int length = firstLength;
+            while (length > 0) {
+                if (++partNumber > MAX_PARTS) {
+                    throw new IllegalStateException("Content exceeds " + MAX_PARTS + " parts, please increase PART_SIZE");
+                }
+                final int number = partNumber;
+                final byte[] content = buffer;
+                final int contentLength = length;
+                executor.submit(() -> {
+                    try {
+                        PartETag partETag = RetryUtils.call(() -> oss.uploadPart(new UploadPartRequest(bucket, key, uploadId, number,
+                                new ByteArrayInputStream(content, 0, contentLength), contentLength)).getPartETag());
+                        synchronized (partETags) {
+                            partETags.add(partETag);
+                        }
+                    } finally {
+                        buffers.offer(content);
+                    }
+                });
+                uploaded += length;
+                buffer = buffers.poll();
+                if (buffer == null) {
+                    buffer = new byte[size];
+                }
+                length = IOUtils.read(input, buffer);
+            }
+            executor.await();
+            partETags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            oss.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+            return uploaded;
+        } catch (Exception e) {
+            abortQuietly(bucket, key, uploadId);
+            throw e;
+        }
+    }
+
+    /**
+     * load uploaded parts from OSS, parts with unexpected size will be uploaded again
+     *
+     * @param bucket     bucket
+     * @param key        object key
+     * @param uploadId   upload id
+     * @param fileLength file length
+     * @param size       part size
+     * @param partETags  part ETags to fill
+     * @return false if the upload is absent
+     */
+    private boolean loadUploadedParts(String bucket, String key, String uploadId, long fileLength, long size, PartETag[] partETags) {
+        try {
+            Integer marker = null;
+            PartListing partListing;
+            do {
+                ListPartsRequest request = new ListPartsRequest(bucket, key, uploadId);
+                request.setPartNumberMarker(marker);
+                partListing = oss.listParts(request);
+                for (PartSummary part : partListing.getParts()) {
+                    int index = part.getPartNumber() - 1;
+                    if (index < partETags.length && part.getSize() == Math.min(size, fileLength - index * size)) {
+                        partETags[index] = new PartETag(part.getPartNumber(), part.getETag(), part.getSize(), null);
+                    }
+                }
+                marker = partListing.getNextPartNumberMarker();
+            } while (partListing.isTruncated());
+            return true;
+        } catch (OSSException e) {
+            return false;
+        }
+    }
+
+    /**
+     * abort multipart upload and ignore error
+     *
+     * @param bucket   bucket
+     * @param key      object key
+     * @param uploadId upload id
+     */
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        try {
+            oss.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+        } catch (Exception ignore) {
+
+        }
+    }
+
+    /**
+     * read bytes from channel at position into buffer
+     *
+     * @param channel  file channel
+     * @param buffer   buffer
+     * @param position position
+     * @param length   length to read
+     * @throws Exception exception
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws Exception {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+            }
+        }
+    }
+}
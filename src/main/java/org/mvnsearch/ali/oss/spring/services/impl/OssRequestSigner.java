@@ -0,0 +1,276 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * OSS request signer: V1 signs with HMAC-SHA1 over verb, content headers, date, x-oss headers and resource,
+ * V4 signs a canonical request with OSS4-HMAC-SHA256 and a signing key scoped to date and region
+ *
+ * @author linux_china
+ */
+public class OssRequestSigner {
+    /**
+     * signature version 1
+     */
+    public static final String V1 = "v1";
+    /**
+     * signature version 4
+     */
+    public static final String V4 = "v4";
+    /**
+     * V4 algorithm
+     */
+    private static final String OSS4_HMAC_SHA256 = "OSS4-HMAC-SHA256";
+    /**
+     * V4 unsigned payload hash
+     */
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    /**
+     * http date format
+     */
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+    /**
+     * ISO8601 date time format of V4
+     */
+    private static final DateTimeFormatter ISO8601_DATETIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    /**
+     * ISO8601 date format of V4
+     */
+    private static final DateTimeFormatter ISO8601_DATE = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    /**
+     * access id
+     */
+    private final String accessId;
+    /**
+     * access key
+     */
+    private final String accessKey;
+    /**
+     * signature version
+     */
+    private final String version;
+    /**
+     * region, such as cn-hangzhou, required by V4
+     */
+    private final String region;
+
+    /**
+     * construct method
+     *
+     * @param accessId  access id
+     * @param accessKey access key
+     * @param version   signature version, v1 or v4
+     * @param region    region, required by V4
+     */
+    public OssRequestSigner(String accessId, String accessKey, String version, @Nullable String region) {
+        this.accessId = accessId;
+        this.accessKey = accessKey;
+        this.version = V4.equalsIgnoreCase(version) ? V4 : V1;
+        this.region = region;
+        if (this.version.equals(V4) && (region == null || region.isEmpty())) {
+            throw new IllegalArgumentException("Region is required by V4 signature");
+        }
+    }
+
+    /**
+     * get signature version
+     *
+     * @return v1 or v4
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * sign request: date and authorization headers are added into headers
+     *
+     * @param method       http method
+     * @param resourcePath resource path, such as /bucket/key or /bucket/
+     * @param parameters   query parameters
+     * @param headers      request headers, content-type, content-md5 and x-oss-* headers are signed
+     * @param now          request time
+     */
+    public void sign(String method, String resourcePath, Map<String, String> parameters, Map<String, String> headers, Instant now) {
+        if (version.equals(V4)) {
+            signV4(method, resourcePath, parameters, headers, now);
+        } else {
+            signV1(method, resourcePath, headers, now);
+        }
+    }
+
+    /**
+     * sign request with V1 signature, sub resources are not signed because object and listing requests have none
+     *
+     * @param method       http method
+     * @param resourcePath resource path
+     * @param headers      request headers
+     * @param now          request time
+     */
+    private void signV1(String method, String resourcePath, Map<String, String> headers, Instant now) {
+        String date = HTTP_DATE.format(now);
+        headers.put("Date", date);
+        StringBuilder stringToSign = new StringBuilder();
+        stringToSign.append(method).append('\n');
+        stringToSign.append(getHeader(headers, "content-md5")).append('\n');
+        stringToSign.append(getHeader(headers, "content-type")).append('\n');
+        stringToSign.append(date).append('\n');
+        for (Map.Entry<String, String> entry : getSignedHeaders(headers, false).entrySet()) {
+            stringToSign.append(entry.getKey()).append(':').append(entry.getValue()).append('\n');
+        }
+        stringToSign.append(resourcePath);
+        String signature = Base64.getEncoder().encodeToString(hmac("HmacSHA1", accessKey.getBytes(StandardCharsets.UTF_8), stringToSign.toString()));
+        headers.put("Authorization", "OSS " + accessId + ":" + signature);
+    }
+
+    /**
+     * sign request with V4 signature
+     *
+     * @param method       http method
+     * @param resourcePath resource path
+     * @param parameters   query parameters
+     * @param headers      request headers
+     * @param now          request time
+     */
+    private void signV4(String method, String resourcePath, Map<String, String> parameters, Map<String, String> headers, Instant now) {
+        String dateTime = ISO8601_DATETIME.format(now);
+        String date = ISO8601_DATE.format(now);
+        headers.put("x-oss-date", dateTime);
+        headers.put("x-oss-content-sha256", UNSIGNED_PAYLOAD);
+        //canonical request
+        StringBuilder canonicalRequest = new StringBuilder();
+        canonicalRequest.append(method).append('\n');
+        canonicalRequest.append(urlEncode(resourcePath, true)).append('\n');
+        canonicalRequest.append(canonicalQueryString(parameters)).append('\n');
+        for (Map.Entry<String, String> entry : getSignedHeaders(headers, true).entrySet()) {
+            canonicalRequest.append(entry.getKey()).append(':').append(entry.getValue()).append('\n');
+        }
+        canonicalRequest.append('\n');
+        //no additional headers
+        canonicalRequest.append('\n');
+        canonicalRequest.append(UNSIGNED_PAYLOAD);
+        String scope = date + "/" + region + "/oss/aliyun_v4_request";
+        String stringToSign = OSS4_HMAC_SHA256 + "\n" + dateTime + "\n" + scope + "\n" + hex(sha256(canonicalRequest.toString()));
+        byte[] signingKey = hmac("HmacSHA256", ("aliyun_v4" + accessKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac("HmacSHA256", signingKey, region);
+        signingKey = hmac("HmacSHA256", signingKey, "oss");
+        signingKey = hmac("HmacSHA256", signingKey, "aliyun_v4_request");
+        String signature = hex(hmac("HmacSHA256", signingKey, stringToSign));
+        headers.put("Authorization", OSS4_HMAC_SHA256 + " Credential=" + accessId + "/" + scope + ",Signature=" + signature);
+    }
+
+    /**
+     * get signed headers sorted by lower case name: x-oss-* headers, and content-type and content-md5 for V4
+     *
+     * @param headers        request headers
+     * @param contentHeaders include content headers
+     * @return signed headers
+     */
+    private static SortedMap<String, String> getSignedHeaders(Map<String, String> headers, boolean contentHeaders) {
+        SortedMap<String, String> signedHeaders = new TreeMap<>();
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (name.startsWith("x-oss-") || (contentHeaders && (name.equals("content-type") || name.equals("content-md5")))) {
+                signedHeaders.put(name, entry.getValue().trim());
+            }
+        }
+        return signedHeaders;
+    }
+
+    /**
+     * get header value ignoring case
+     *
+     * @param headers headers
+     * @param name    header name
+     * @return header value, empty if absent
+     */
+    private static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * build canonical query string: encoded parameters sorted by name, value omitted if empty
+     *
+     * @param parameters query parameters
+     * @return canonical query string
+     */
+    public static String canonicalQueryString(Map<String, String> parameters) {
+        SortedMap<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<String, String> entry : parameters.entrySet()) {
+            sorted.put(urlEncode(entry.getKey().trim(), false), entry.getValue() == null ? "" : urlEncode(entry.getValue().trim(), false));
+        }
+        StringJoiner joiner = new StringJoiner("&");
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            joiner.add(entry.getValue().isEmpty() ? entry.getKey() : entry.getKey() + "=" + entry.getValue());
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * RFC 3986 url encode
+     *
+     * @param value value
+     * @param path  path mark, slash is kept
+     * @return encoded value
+     */
+    public static String urlEncode(String value, boolean path) {
+        String encoded = URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+        return path ? encoded.replace("%2F", "/") : encoded;
+    }
+
+    /**
+     * HMAC
+     *
+     * @param algorithm algorithm
+     * @param key       key
+     * @param data      data
+     * @return mac
+     */
+    private static byte[] hmac(String algorithm, byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(key, algorithm));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * SHA-256 digest
+     *
+     * @param data data
+     * @return digest
+     */
+    private static byte[] sha256(String data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * hex encode
+     *
+     * @param bytes bytes
+     * @return lower case hex
+     */
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
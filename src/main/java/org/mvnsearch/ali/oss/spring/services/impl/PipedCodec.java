@@ -0,0 +1,81 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.mvnsearch.ali.oss.spring.services.Codec;
+
+import java.io.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * base codec for encoders which only offer output stream: plain content is pushed into the encoder
+ * by a daemon thread, and encoded content is pulled from a pipe with bounded buffer
+ *
+ * @author linux_china
+ */
+public abstract class PipedCodec implements Codec {
+    /**
+     * encoder thread counter
+     */
+    private static final AtomicInteger counter = new AtomicInteger();
+    /**
+     * buffer size
+     */
+    protected final int bufferSize;
+
+    /**
+     * construct method
+     *
+     * @param bufferSize buffer size
+     */
+    protected PipedCodec(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * create encoder output stream
+     *
+     * @param output encoded output
+     * @return encoder stream
+     * @throws IOException exception
+     */
+    protected abstract OutputStream createEncoder(OutputStream output) throws IOException;
+
+    @Override
+    public InputStream encode(InputStream plainInput, long length) throws IOException {
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        PipedOutputStream pipedOutput = new PipedOutputStream();
+        PipedInputStream pipedInput = new PipedInputStream(pipedOutput, bufferSize) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count < 0 && failure.get() != null) {
+                    throw failure.get();
+                }
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                plainInput.close();
+            }
+        };
+        Thread thread = new Thread(() -> {
+            OutputStream encoder = null;
+            try (InputStream input = plainInput) {
+                encoder = createEncoder(pipedOutput);
+                IOUtils.copy(input, encoder, bufferSize);
+                //encoder is closed only after successful copy, otherwise it writes a valid frame end for truncated content
+                encoder.close();
+            } catch (Throwable e) {
+                failure.set(e instanceof IOException ? (IOException) e : new IOException(e));
+                IOUtils.closeQuietly(pipedOutput);
+                IOUtils.closeQuietly(encoder);
+            }
+        }, getName() + "-encoder-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        return pipedInput;
+    }
+}
@@ -0,0 +1,151 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.mvnsearch.ali.oss.spring.services.BoundedExecutor;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.services.RetryUtils;
+import org.mvnsearch.ali.oss.spring.services.TransferOptions;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+
+/**
+ * ranged download engine: object is split into chunks fetched with concurrent HTTP Range requests,
+ * every chunk is written into the preallocated part file with positional writes, and the part file
+ * replaces dest file only after all chunks succeeded
+ *
+ * @author linux_china
+ */
+public class RangeDownloader {
+    /**
+     * copy buffer size
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * part file suffix of download in progress
+     */
+    public static final String PART_SUFFIX = ".part";
+    /**
+     * oss client
+     */
+    private final OSSClient oss;
+    /**
+     * chunk size
+     */
+    private final long chunkSize;
+
+    /**
+     * construct method
+     *
+     * @param oss       oss client
+     * @param chunkSize chunk size
+     */
+    public RangeDownloader(OSSClient oss, long chunkSize) {
+        this.oss = oss;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * get part file of download in progress
+     *
+     * @param destFile dest file
+     * @return part file
+     */
+    public static File getPartFile(File destFile) {
+        return new File(destFile.getParentFile(), destFile.getName() + PART_SUFFIX);
+    }
+
+    /**
+     * download object into dest file, completed chunks are recorded in {@link DownloadCheckpoint} of the part file
+     * after their bytes are forced to disk. part file and checkpoint are kept if failed, so the download can be resumed
+     *
+     * @param objectUri      object uri
+     * @param objectMetadata object metadata
+     * @param destFile       dest file
+     * @param options        transfer options: parallel chunk count and resume mark
+     * @throws Exception exception
+     */
+    public void download(OSSUri objectUri, ObjectMetadata objectMetadata, File destFile, TransferOptions options) throws Exception {
+        long objectSize = objectMetadata.getContentLength();
+        int chunkCount = (int) ((objectSize + chunkSize - 1) / chunkSize);
+        File partFile = getPartFile(destFile);
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(partFile);
+        boolean resumed = options.isResume() && partFile.length() == objectSize
+                && checkpoint.load() && checkpoint.isValidFor(objectMetadata, chunkSize);
+        if (!resumed) {
+            try (RandomAccessFile raf = new RandomAccessFile(partFile, "rw")) {
+                raf.setLength(0);
+                raf.setLength(objectSize);
+            }
+            checkpoint.start(objectMetadata, chunkSize);
+        }
+        try (FileChannel channel = FileChannel.open(partFile.toPath(), StandardOpenOption.WRITE);
+             BoundedExecutor executor = new BoundedExecutor("oss-download", Math.max(1, Math.min(options.getParallel(), chunkCount)))) {
+            for (int i = 0; i < chunkCount; i++) {
+                if (checkpoint.isCompleted(i)) {
+                    continue;
+                }
+                final int index = i;
+                final long start = i * chunkSize;
+                final long end = Math.min(start + chunkSize, objectSize) - 1;
+                executor.submit(() -> {
+                    RetryUtils.call(() -> {
+                        downloadRange(objectUri, objectMetadata.getETag(), channel, start, end);
+                        return null;
+                    });
+                    //chunk is journaled only after its bytes reached the disk
+                    channel.force(false);
+                    checkpoint.complete(index);
+                });
+            }
+            executor.await();
+            channel.force(true);
+        }
+        Files.move(partFile.toPath(), destFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        checkpoint.delete();
+    }
+
+    /**
+     * download range and write it at the same position of file
+     *
+     * @param objectUri object uri
+     * @param etag      expected ETag, the object should not be changed during download
+     * @param channel   file channel
+     * @param start     start position, inclusive
+     * @param end       end position, inclusive
+     * @throws Exception exception
+     */
+    private void downloadRange(OSSUri objectUri, String etag, FileChannel channel, long start, long end) throws Exception {
+        GetObjectRequest request = new GetObjectRequest(objectUri.getBucket(), objectUri.getFilePath());
+        request.setRange(start, end);
+        if (etag != null) {
+            request.setMatchingETagConstraints(Collections.singletonList(etag));
+        }
+        OSSObject ossObject = oss.getObject(request);
+        try (InputStream content = ossObject.getObjectContent()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = start;
+            int count;
+            while ((count = content.read(buffer)) != -1) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, count);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+            if (position != end + 1) {
+                throw new EOFException("Range " + start + "-" + end + " incomplete for " + objectUri);
+            }
+        }
+    }
+}
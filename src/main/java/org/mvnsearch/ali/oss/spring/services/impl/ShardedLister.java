@@ -0,0 +1,325 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.BoundedExecutor;
+import org.mvnsearch.ali.oss.spring.services.RetryUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * prefix-sharded listing engine: top-level common prefixes are discovered with a delimiter listing first,
+ * then every shard is listed concurrently with its own marker chain
+ *
+ * @author linux_china
+ */
+public class ShardedLister {
+    /**
+     * max keys for one page
+     */
+    private static final int PAGE_SIZE = 1000;
+    /**
+     * buffered pages of one shard in ordered listing
+     */
+    private static final int PAGES_PER_SHARD = 2;
+    /**
+     * oss client
+     */
+    private final OSSClient oss;
+    /**
+     * parallel shards
+     */
+    private final int parallel;
+
+    /**
+     * construct method
+     *
+     * @param oss      oss client
+     * @param parallel parallel shards
+     */
+    public ShardedLister(OSSClient oss, int parallel) {
+        this.oss = oss;
+        this.parallel = Math.max(1, parallel);
+    }
+
+    /**
+     * list all objects under prefix
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param ordered    ordered mark: if true, consumer is invoked from caller thread in key order,
+     *                   otherwise it is invoked concurrently from shard threads
+     * @param consumer   object summary consumer
+     * @throws Exception exception
+     */
+    public void list(String bucketName, String prefix, boolean ordered, AliyunOssService.ObjectSummaryConsumer consumer) throws Exception {
+        if (ordered) {
+            listOrdered(bucketName, prefix, consumer);
+            return;
+        }
+        //discover shards
+        List<String> shards = new ArrayList<>();
+        String marker = null;
+        ObjectListing objectListing;
+        do {
+            ListObjectsRequest request = createRequest(bucketName, prefix, marker);
+            request.setDelimiter("/");
+            objectListing = RetryUtils.call(() -> oss.listObjects(request));
+            shards.addAll(objectListing.getCommonPrefixes());
+            for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+                consumer.accept(objectSummary);
+            }
+            marker = objectListing.getNextMarker();
+        } while (objectListing.isTruncated());
+        try (BoundedExecutor executor = new BoundedExecutor("oss-list", parallel)) {
+            for (String shard : shards) {
+                executor.submit(() -> listShard(bucketName, shard, consumer));
+            }
+            executor.await();
+        }
+    }
+
+    /**
+     * list shards concurrently and emit results in key order from caller thread. Shards are started while
+     * the delimiter listing is walked, and every shard is fed page by page through a bounded queue, so the head
+     * shard is drained while it is still being listed. At most parallel*2 shards are in flight, and pending
+     * entries are bounded, so memory stays constant as with paged listing
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param consumer   object summary consumer
+     * @throws Exception exception
+     */
+    private void listOrdered(String bucketName, String prefix, AliyunOssService.ObjectSummaryConsumer consumer) throws Exception {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallel, runnable -> {
+            Thread thread = new Thread(runnable, "oss-list-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            int window = parallel * 2;
+            int maxPending = PAGE_SIZE * window;
+            //objects and shards in key order, waiting to be emitted
+            Deque<Object> pending = new ArrayDeque<>();
+            int running = 0;
+            String marker = null;
+            ObjectListing objectListing;
+            do {
+                ListObjectsRequest request = createRequest(bucketName, prefix, marker);
+                request.setDelimiter("/");
+                objectListing = RetryUtils.call(() -> oss.listObjects(request));
+                for (Object entry : mergeByKey(objectListing.getObjectSummaries(), objectListing.getCommonPrefixes())) {
+                    if (entry instanceof String) {
+                        //shards are started in key order, so the head shard is never starved by blocked shards behind it
+                        while (running >= window) {
+                            running -= emitHead(pending, consumer);
+                        }
+                        final String shard = (String) entry;
+                        final ShardPages pages = new ShardPages();
+                        executor.execute(() -> pages.fill(() -> {
+                            listShardPages(bucketName, shard, pages::put);
+                            return null;
+                        }));
+                        pending.add(pages);
+                        running++;
+                    } else {
+                        pending.add(entry);
+                    }
+                    while (pending.size() > maxPending || (!pending.isEmpty() && pending.peek() instanceof OSSObjectSummary)) {
+                        running -= emitHead(pending, consumer);
+                    }
+                }
+                marker = objectListing.getNextMarker();
+            } while (objectListing.isTruncated());
+            while (!pending.isEmpty()) {
+                emitHead(pending, consumer);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * emit head of pending entries: an object, or all objects of a shard as they are listed
+     *
+     * @param pending  pending entries
+     * @param consumer object summary consumer
+     * @return 1 if a shard is finished, otherwise 0
+     * @throws Exception exception
+     */
+    private static int emitHead(Deque<Object> pending, AliyunOssService.ObjectSummaryConsumer consumer) throws Exception {
+        Object head = pending.poll();
+        if (head instanceof ShardPages) {
+            List<OSSObjectSummary> page;
+            while ((page = ((ShardPages) head).take()) != null) {
+                for (OSSObjectSummary objectSummary : page) {
+                    consumer.accept(objectSummary);
+                }
+            }
+            return 1;
+        }
+        consumer.accept((OSSObjectSummary) head);
+        return 0;
+    }
+
+    /**
+     * merge objects and common prefixes of a delimiter listing page in key order
+     *
+     * @param objectSummaries object summaries, sorted
+     * @param commonPrefixes  common prefixes, sorted
+     * @return object summaries and common prefixes in key order
+     */
+    static List<Object> mergeByKey(List<OSSObjectSummary> objectSummaries, List<String> commonPrefixes) {
+        List<Object> entries = new ArrayList<>(objectSummaries.size() + commonPrefixes.size());
+        int i = 0;
+        int j = 0;
+        while (i < objectSummaries.size() || j < commonPrefixes.size()) {
+            if (j >= commonPrefixes.size() || (i < objectSummaries.size() && objectSummaries.get(i).getKey().compareTo(commonPrefixes.get(j)) < 0)) {
+                entries.add(objectSummaries.get(i++));
+            } else {
+                entries.add(commonPrefixes.get(j++));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * list shard recursively with its own marker chain
+     *
+     * @param bucketName bucket name
+     * @param shard      shard prefix
+     * @param consumer   object summary consumer
+     * @throws Exception exception
+     */
+    private void listShard(String bucketName, String shard, AliyunOssService.ObjectSummaryConsumer consumer) throws Exception {
+        listShardPages(bucketName, shard, page -> {
+            for (OSSObjectSummary objectSummary : page) {
+                consumer.accept(objectSummary);
+            }
+        });
+    }
+
+    /**
+     * list shard recursively with its own marker chain, page by page
+     *
+     * @param bucketName   bucket name
+     * @param shard        shard prefix
+     * @param pageConsumer page consumer
+     * @throws Exception exception
+     */
+    private void listShardPages(String bucketName, String shard, PageConsumer pageConsumer) throws Exception {
+        String marker = null;
+        ObjectListing objectListing;
+        do {
+            ListObjectsRequest request = createRequest(bucketName, shard, marker);
+            objectListing = RetryUtils.call(() -> oss.listObjects(request));
+            pageConsumer.accept(objectListing.getObjectSummaries());
+            marker = objectListing.getNextMarker();
+        } while (objectListing.isTruncated());
+    }
+
+    /**
+     * create listing request
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @param marker     marker
+     * @return request
+     */
+    private static ListObjectsRequest createRequest(String bucketName, String prefix, String marker) {
+        ListObjectsRequest request = new ListObjectsRequest(bucketName);
+        request.setPrefix(prefix);
+        request.setMarker(marker);
+        request.setMaxKeys(PAGE_SIZE);
+        return request;
+    }
+
+    /**
+     * page consumer
+     */
+    private interface PageConsumer {
+        /**
+         * accept page
+         *
+         * @param page object summaries of page
+         * @throws Exception exception
+         */
+        void accept(List<OSSObjectSummary> page) throws Exception;
+    }
+
+    /**
+     * pages of one shard handed from the listing thread to the caller thread
+     */
+    private static class ShardPages {
+        /**
+         * end of shard mark
+         */
+        private static final List<OSSObjectSummary> END = new ArrayList<>();
+        /**
+         * listed pages, bounded
+         */
+        private final BlockingQueue<List<OSSObjectSummary>> pages = new ArrayBlockingQueue<>(PAGES_PER_SHARD);
+        /**
+         * listing failure
+         */
+        private volatile Exception failure;
+
+        /**
+         * run listing and mark the end of shard, failure is kept for caller
+         *
+         * @param listing listing task
+         */
+        void fill(Callable<?> listing) {
+            try {
+                listing.call();
+            } catch (Exception e) {
+                failure = e;
+            }
+            try {
+                pages.put(END);
+            } catch (InterruptedException ignore) {
+                //caller gave up
+            }
+        }
+
+        /**
+         * put page, blocked while caller is behind
+         *
+         * @param page page
+         * @throws InterruptedException interrupted
+         */
+        void put(List<OSSObjectSummary> page) throws InterruptedException {
+            if (!page.isEmpty()) {
+                pages.put(page);
+            }
+        }
+
+        /**
+         * take next page
+         *
+         * @return page, null if shard is finished
+         * @throws Exception listing failure
+         */
+        @Nullable
+        List<OSSObjectSummary> take() throws Exception {
+            List<OSSObjectSummary> page = pages.take();
+            if (page == END) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return null;
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.jetbrains.annotations.Nullable;
+import org.mvnsearch.ali.oss.spring.services.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.regex.Pattern;
+
+/**
+ * sync service implementation: the directory is walked by a streaming producer which feeds
+ * a bounded queue consumed by a pool of upload workers. In sync mode, the dest prefix is listed
+ * with sharded concurrent listing first, and local files are compared with the in-memory index instead of HEAD requests.
+ * Download direction fetches new or changed objects concurrently while the listing shards arrive
+ *
+ * @author linux_china
+ */
+@Component("syncService")
+public class SyncServiceImpl implements SyncService {
+    /**
+     * log
+     */
+    private static final Logger log = LoggerFactory.getLogger(SyncServiceImpl.class);
+    /**
+     * queued files per worker
+     */
+    private static final int QUEUE_FACTOR = 16;
+    /**
+     * ETag pattern of single put object, which is content MD5
+     */
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+    /**
+     * hash cache file name
+     */
+    private static final String HASH_CACHE_FILE = ".oss-hash-cache";
+    /**
+     * aliyun oss service
+     */
+    private AliyunOssService aliyunOssService;
+    /**
+     * config service
+     */
+    private ConfigService configService;
+
+    /**
+     * inject aliyun oss service
+     *
+     * @param aliyunOssService aliyun oss service
+     */
+    @Autowired
+    public void setAliyunOssService(AliyunOssService aliyunOssService) {
+        this.aliyunOssService = aliyunOssService;
+    }
+
+    /**
+     * inject config service
+     *
+     * @param configService config service
+     */
+    @Autowired
+    public void setConfigService(ConfigService configService) {
+        this.configService = configService;
+    }
+
+    /**
+     * upload directory
+     *
+     * @param bucket       bucket
+     * @param destFilePath dest file path
+     * @param sourceDir    source directory
+     * @param synced       synced mark, unchanged files will be skipped
+     * @param options      transfer options
+     * @return uploaded file count
+     * @throws Exception exception, also thrown with failure summary if any file failed
+     */
+    @Override
+    public int uploadDirectory(String bucket, String destFilePath, File sourceDir, boolean synced, TransferOptions options) throws Exception {
+        Path sourcePath = sourceDir.toPath();
+        int workers = options.getWorkers();
+        ObjectIndex remoteIndex = synced ? buildRemoteIndex(bucket, destFilePath) : null;
+        FileHashCache hashCache = null;
+        if (synced && options.isChecksum()) {
+            hashCache = new FileHashCache(getHashCacheFile());
+            hashCache.load();
+        }
+        final FileHashCache finalHashCache = hashCache;
+        try (TransferProgress progress = new TransferProgress();
+             BoundedExecutor executor = new BoundedExecutor("oss-sync", workers, workers * QUEUE_FACTOR)) {
+            Files.walkFileTree(sourcePath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(sourcePath) && dir.getFileName().toString().startsWith(".")) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && !file.getFileName().toString().startsWith(".")) {
+                        if (finalHashCache != null) {
+                            finalHashCache.markSeen(file.toFile());
+                        }
+                        OSSUri objectUri = new OSSUri(bucket, getDestPath(destFilePath, sourcePath.relativize(file)));
+                        try {
+                            executor.submit(() -> uploadFile(file.toFile(), objectUri, remoteIndex, finalHashCache, options, progress));
+                        } catch (Exception e) {
+                            throw new IOException(e);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            executor.await();
+            //walk completed, entries of deleted files are dropped
+            if (hashCache != null) {
+                hashCache.prune(sourceDir);
+            }
+            System.out.println("Finished: " + progress);
+            checkFailures(progress, "uploaded");
+            return (int) progress.getTransferred();
+        } finally {
+            if (hashCache != null) {
+                hashCache.save();
+            }
+        }
+    }
+
+    /**
+     * download objects under prefix into local directory, only new or changed objects are fetched
+     *
+     * @param bucket        bucket
+     * @param sourcePath    source object path
+     * @param destDir       dest directory
+     * @param deleteMissing delete local files which are missing remotely
+     * @param options       transfer options
+     * @return downloaded object count
+     * @throws Exception exception, also thrown with failure summary if any object failed
+     */
+    @Override
+    public int downloadDirectory(String bucket, String sourcePath, File destDir, boolean deleteMissing, TransferOptions options) throws Exception {
+        String prefix = sourcePath.isEmpty() || sourcePath.endsWith("/") ? sourcePath : sourcePath + "/";
+        Path destPath = destDir.toPath().toAbsolutePath().normalize();
+        ObjectIndex remoteIndex = new ObjectIndex();
+        int workers = options.getWorkers();
+        try (TransferProgress progress = new TransferProgress();
+             BoundedExecutor executor = new BoundedExecutor("oss-sync", workers, workers * QUEUE_FACTOR)) {
+            aliyunOssService.listAll(bucket, prefix, false, objectSummary -> {
+                String key = objectSummary.getKey();
+                Path localPath = destPath.resolve(key.substring(prefix.length())).normalize();
+                //ignore directory placeholder and key out of dest directory
+                if (key.endsWith("/") || !localPath.startsWith(destPath)) {
+                    return;
+                }
+                remoteIndex.add(objectSummary);
+                executor.submit(() -> downloadFile(new OSSUri(bucket, key), localPath.toFile(), objectSummary, options, progress));
+            });
+            executor.await();
+            if (deleteMissing) {
+                deleteMissingFiles(destPath, prefix, remoteIndex);
+            }
+            System.out.println("Finished: " + progress);
+            checkFailures(progress, "downloaded");
+            return (int) progress.getTransferred();
+        }
+    }
+
+    /**
+     * fail directory transfer if any file failed, so that partial transfer is not reported as success
+     *
+     * @param progress transfer progress
+     * @param action   transfer action, such as uploaded
+     * @throws IOException exception with failure summary
+     */
+    private static void checkFailures(TransferProgress progress, String action) throws IOException {
+        if (progress.getFailed() > 0) {
+            throw new IOException(MessageFormat.format("{0} files failed, {1} files {2}",
+                    progress.getFailed(), progress.getTransferred(), action));
+        }
+    }
+
+    /**
+     * download object if local file is absent or changed, local modified time is set to the object's
+     *
+     * @param objectUri     object uri
+     * @param localFile     local file
+     * @param objectSummary object summary
+     * @param options       transfer options
+     * @param progress      progress
+     */
+    private void downloadFile(OSSUri objectUri, File localFile, OSSObjectSummary objectSummary, TransferOptions options, TransferProgress progress) {
+        try {
+            long lastModified = objectSummary.getLastModified().getTime();
+            if (localFile.exists() && (localFile.lastModified() == lastModified
+                    || (localFile.length() == objectSummary.getSize() && localFile.lastModified() >= lastModified))) {
+                progress.skipped();
+                return;
+            }
+            aliyunOssService.get(objectUri, localFile.getAbsolutePath(), options);
+            //noinspection ResultOfMethodCallIgnored
+            localFile.setLastModified(lastModified);
+            progress.transferred(objectSummary.getSize());
+        } catch (Exception e) {
+            log.error("download", e);
+            progress.failed();
+            System.out.println("Failed: " + objectUri + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * delete local files which are missing remotely, hidden files, partial downloads and download checkpoints are kept
+     *
+     * @param destPath    dest directory
+     * @param prefix      object prefix
+     * @param remoteIndex remote object index
+     * @throws Exception exception
+     */
+    private void deleteMissingFiles(Path destPath, String prefix, ObjectIndex remoteIndex) throws Exception {
+        if (!Files.isDirectory(destPath)) {
+            return;
+        }
+        Files.walkFileTree(destPath, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(destPath) && dir.getFileName().toString().startsWith(".")) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String name = file.getFileName().toString();
+                if (attrs.isRegularFile() && !name.startsWith(".") && !name.endsWith(RangeDownloader.PART_SUFFIX)
+                        && !name.endsWith(DownloadCheckpoint.SUFFIX)) {
+                    String key = getDestPath(prefix, destPath.relativize(file));
+                    if (!remoteIndex.contains(key)) {
+                        Files.delete(file);
+                        System.out.println("Deleted: " + file);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * upload file, the failure is reported and counted instead of stopping the pipeline
+     *
+     * @param file        local file
+     * @param objectUri   object uri
+     * @param remoteIndex remote object index for sync validation, null if not synced
+     * @param hashCache   local hash cache, null if checksum not required
+     * @param options     transfer options
+     * @param progress    progress
+     */
+    private void uploadFile(File file, OSSUri objectUri, @Nullable ObjectIndex remoteIndex, @Nullable FileHashCache hashCache,
+                            TransferOptions options, TransferProgress progress) {
+        try {
+            //sync validation
+            if (remoteIndex != null) {
+                ObjectIndex.Entry entry = remoteIndex.get(objectUri.getFilePath());
+                if (entry != null && file.length() == entry.getSize()) {
+                    boolean unchanged = hashCache != null ? isSameContent(file, hashCache, objectUri, entry)
+                            : entry.getLastModified() >= file.lastModified();
+                    if (unchanged) {
+                        progress.skipped();
+                        return;
+                    }
+                }
+            }
+            aliyunOssService.put(file.getAbsolutePath(), objectUri, options);
+            progress.transferred(file.length());
+        } catch (Exception e) {
+            log.error("upload", e);
+            progress.failed();
+            System.out.println("Failed: " + objectUri + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * compare local content with remote object: ETag is MD5 for single put object. Listing carries no CRC64,
+     * so multipart ETag is compared with the ETag verified in hash cache, and CRC64 from object metadata
+     * is fetched only if the file or the object changed since last verification
+     *
+     * @param file      local file
+     * @param hashCache local hash cache
+     * @param objectUri object uri
+     * @param entry     remote index entry
+     * @return same content mark
+     * @throws Exception exception
+     */
+    private boolean isSameContent(File file, FileHashCache hashCache, OSSUri objectUri, ObjectIndex.Entry entry) throws Exception {
+        FileHashes fileHashes = hashCache.getHashes(file);
+        String etag = entry.getETag();
+        if (etag != null && MD5_ETAG.matcher(etag).matches()) {
+            return etag.equalsIgnoreCase(fileHashes.getMd5Hex());
+        }
+        if (etag != null && etag.equals(hashCache.getVerifiedETag(file))) {
+            return true;
+        }
+        ObjectMetadata objectMetadata = aliyunOssService.getObjectMetadata(objectUri);
+        boolean same = objectMetadata != null && objectMetadata.getServerCRC() != null
+                && objectMetadata.getServerCRC() == fileHashes.getCrc64();
+        if (same && etag != null) {
+            hashCache.setVerifiedETag(file, etag);
+        }
+        return same;
+    }
+
+    /**
+     * build remote object index with sharded listing of dest prefix
+     *
+     * @param bucket       bucket
+     * @param destFilePath dest file path
+     * @return object index
+     * @throws Exception exception
+     */
+    private ObjectIndex buildRemoteIndex(String bucket, String destFilePath) throws Exception {
+        String prefix = destFilePath.isEmpty() || destFilePath.endsWith("/") ? destFilePath : destFilePath + "/";
+        ObjectIndex index = new ObjectIndex();
+        aliyunOssService.listAll(bucket, prefix, false, index::add);
+        System.out.println("Indexed " + index.size() + " objects in " + new OSSUri(bucket, prefix));
+        return index;
+    }
+
+    /**
+     * get hash cache file in local repository, or in work directory if repository absent
+     *
+     * @return hash cache file
+     */
+    private File getHashCacheFile() {
+        String repository = configService.getRepository();
+        File dir = (repository == null || repository.isEmpty()) ? configService.getWorkDirectory() : new File(repository);
+        return new File(dir, HASH_CACHE_FILE);
+    }
+
+    /**
+     * get dest path for relative path
+     *
+     * @param destFilePath dest file path
+     * @param relativePath relative path in source directory
+     * @return dest path
+     */
+    private static String getDestPath(String destFilePath, Path relativePath) {
+        String path = relativePath.toString().replace('\\', '/');
+        if (destFilePath.isEmpty() || destFilePath.endsWith("/")) {
+            return destFilePath + path;
+        }
+        return destFilePath + "/" + path;
+    }
+}
@@ -0,0 +1,144 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * multipart upload checkpoint, stored as properties file: upload id and source file stat.
+ * uploaded parts are not journaled, they are listed from OSS on resume
+ *
+ * @author linux_china
+ */
+public class UploadCheckpoint {
+    /**
+     * checkpoint file
+     */
+    private final File checkpointFile;
+    /**
+     * upload id
+     */
+    private String uploadId;
+    /**
+     * part size
+     */
+    private long partSize;
+    /**
+     * source file size
+     */
+    private long fileSize;
+    /**
+     * source file last modified time
+     */
+    private long lastModified;
+
+    /**
+     * construct method
+     *
+     * @param checkpointFile checkpoint file
+     */
+    public UploadCheckpoint(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * get checkpoint file for source file and dest object
+     *
+     * @param checkpointDir checkpoint directory
+     * @param sourceFile    source file
+     * @param destObject    dest object
+     * @return checkpoint file
+     */
+    public static File getCheckpointFile(File checkpointDir, File sourceFile, OSSUri destObject) {
+        String id = DigestUtils.md5Hex(sourceFile.getAbsolutePath() + "\n" + destObject.toString());
+        return new File(checkpointDir, id + ".upload");
+    }
+
+    /**
+     * load checkpoint from file
+     *
+     * @return checkpoint loaded mark
+     */
+    public boolean load() {
+        if (!checkpointFile.exists()) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(checkpointFile)) {
+            properties.load(input);
+            uploadId = properties.getProperty("uploadId");
+            partSize = Long.parseLong(properties.getProperty("partSize"));
+            fileSize = Long.parseLong(properties.getProperty("fileSize"));
+            lastModified = Long.parseLong(properties.getProperty("lastModified"));
+            return uploadId != null;
+        } catch (Exception ignore) {
+            return false;
+        }
+    }
+
+    /**
+     * validate checkpoint with source file and part size
+     *
+     * @param sourceFile source file
+     * @param partSize   part size
+     * @return valid mark
+     */
+    public boolean isValidFor(File sourceFile, long partSize) {
+        return this.fileSize == sourceFile.length() && this.lastModified == sourceFile.lastModified() && this.partSize == partSize;
+    }
+
+    /**
+     * start new checkpoint
+     *
+     * @param uploadId   upload id
+     * @param sourceFile source file
+     * @param partSize   part size
+     * @throws Exception exception
+     */
+    public synchronized void start(String uploadId, File sourceFile, long partSize) throws Exception {
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.fileSize = sourceFile.length();
+        this.lastModified = sourceFile.lastModified();
+        store();
+    }
+
+    /**
+     * persist checkpoint
+     *
+     * @throws Exception exception
+     */
+    private void store() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("uploadId", uploadId);
+        properties.setProperty("partSize", String.valueOf(partSize));
+        properties.setProperty("fileSize", String.valueOf(fileSize));
+        properties.setProperty("lastModified", String.valueOf(lastModified));
+        FileUtils.forceMkdir(checkpointFile.getParentFile());
+        File tempFile = new File(checkpointFile.getParentFile(), checkpointFile.getName() + ".tmp");
+        try (OutputStream output = new FileOutputStream(tempFile)) {
+            properties.store(output, null);
+        }
+        Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * delete checkpoint file
+     */
+    public void delete() {
+        FileUtils.deleteQuietly(checkpointFile);
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+}
@@ -0,0 +1,47 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * zstd codec
+ *
+ * @author linux_china
+ */
+public class ZstdCodec extends PipedCodec {
+    /**
+     * compression level
+     */
+    private final int level;
+
+    /**
+     * construct method
+     *
+     * @param level      compression level
+     * @param bufferSize buffer size
+     */
+    public ZstdCodec(int level, int bufferSize) {
+        super(bufferSize);
+        this.level = level;
+    }
+
+    @Override
+    public String getName() {
+        return "zstd";
+    }
+
+    @Override
+    protected OutputStream createEncoder(OutputStream output) throws IOException {
+        return new ZstdOutputStreamNoFinalizer(output, level);
+    }
+
+    @Override
+    public InputStream decode(InputStream encodedInput) throws IOException {
+        return new BufferedInputStream(new ZstdInputStreamNoFinalizer(encodedInput), bufferSize);
+    }
+}
@@ -3,9 +3,9 @@ package org.mvnsearch.ali.oss.spring.shell.commands;
 import com.aliyun.oss.model.*;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.filefilter.AbstractFileFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.impl.cookie.DateUtils;
+import org.apache.http.pool.PoolStats;
 import org.fusesource.jansi.Ansi;
 import org.jetbrains.annotations.Nullable;
 import org.mvnsearch.ali.oss.spring.services.*;
@@ -23,6 +23,7 @@ import javax.annotation.PostConstruct;
 import javax.validation.constraints.NotNull;
 import java.awt.*;
 import java.io.File;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
@@ -30,6 +31,11 @@ import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Aliyun OSS operation commands
@@ -51,6 +57,26 @@ public class OssOperationCommands {
      * current bucket
      */
     public static OSSUri currentBucket = null;
+    /**
+     * DeleteObjects batches in flight
+     */
+    private static final int DELETE_PARALLEL = 4;
+    /**
+     * server-side copies in flight for prefix copy and metadata rewrite
+     */
+    private static final int COPY_PARALLEL = 16;
+    /**
+     * property in ~/.aliyunoss.cfg for metadata rewrite across a prefix: 1 to fetch current metadata by async service, 0 by default
+     */
+    private static final String ASYNC_HEAD = "ASYNC_HEAD";
+    /**
+     * HEAD requests in flight on async service for metadata rewrite
+     */
+    private static final int ASYNC_HEAD_IN_FLIGHT = 128;
+    /**
+     * max keys for one listing page of ls --all
+     */
+    private static final int LIST_PAGE_SIZE = 1000;
     /**
      * local repository
      */
@@ -63,6 +89,26 @@ public class OssOperationCommands {
      * aliyun oss service
      */
     private AliyunOssService aliyunOssService;
+    /**
+     * async oss service
+     */
+    private AsyncOssService asyncOssService;
+    /**
+     * sync service
+     */
+    private SyncService syncService;
+    /**
+     * codec registry
+     */
+    private CodecRegistry codecRegistry;
+    /**
+     * listing cache
+     */
+    private ListingCache listingCache;
+    /**
+     * bucket registry
+     */
+    private BucketRegistry bucketRegistry;
 
     /**
      * inject aliyun oss service
@@ -74,6 +120,56 @@ public class OssOperationCommands {
         this.aliyunOssService = aliyunOssService;
     }
 
+    /**
+     * inject async oss service
+     *
+     * @param asyncOssService async oss service
+     */
+    @Autowired
+    public void setAsyncOssService(AsyncOssService asyncOssService) {
+        this.asyncOssService = asyncOssService;
+    }
+
+    /**
+     * inject sync service
+     *
+     * @param syncService sync service
+     */
+    @Autowired
+    public void setSyncService(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * inject listing cache
+     *
+     * @param listingCache listing cache
+     */
+    @Autowired
+    public void setListingCache(ListingCache listingCache) {
+        this.listingCache = listingCache;
+    }
+
+    /**
+     * inject bucket registry
+     *
+     * @param bucketRegistry bucket registry
+     */
+    @Autowired
+    public void setBucketRegistry(BucketRegistry bucketRegistry) {
+        this.bucketRegistry = bucketRegistry;
+    }
+
+    /**
+     * inject codec registry
+     *
+     * @param codecRegistry codec registry
+     */
+    @Autowired
+    public void setCodecRegistry(CodecRegistry codecRegistry) {
+        this.codecRegistry = codecRegistry;
+    }
+
     /**
      * inject config service
      *
@@ -96,14 +192,7 @@ public class OssOperationCommands {
         }
         //bucket常量注入，用于提示
         if (configService.available()) {
-            try {
-                List<Bucket> buckets = aliyunOssService.getBuckets();
-                for (Bucket bucket : buckets) {
-                    BucketEnum.addBucketName(bucket.getName());
-                }
-            } catch (Exception ignore) {
-
-            }
+            bucketRegistry.refreshAsync();
         }
     }
 
@@ -119,8 +208,9 @@ public class OssOperationCommands {
         try {
             configService.setAccessInfo(accessId, accessKey);
             aliyunOssService.refreshToken();
+            listingCache.clear();
             try {
-                List<Bucket> buckets = aliyunOssService.getBuckets();
+                List<Bucket> buckets = bucketRegistry.reload();
                 //local repository
                 if (!repository.exists()) {
                     FileUtils.forceMkdir(repository);
@@ -144,6 +234,31 @@ public class OssOperationCommands {
         return "Access info saved!";
     }
 
+    /**
+     * display connection pool stats of oss client
+     *
+     * @return pool stats
+     */
+    @ShellMethod(key = "conn stats", value = "Display HTTP connection pool stats, read from internals of aliyun-sdk-oss and unavailable if SDK changes them")
+    public String connStats() {
+        Map<String, PoolStats> stats = aliyunOssService.getConnectionPoolStats();
+        if (stats.isEmpty()) {
+            return wrappedAsYellow("Connection pool not available!");
+        }
+        StringBuilder buf = new StringBuilder();
+        buf.append(StringUtils.rightPad("Route", 40, ' ') + StringUtils.leftPad("Leased", 8, ' ') + StringUtils.leftPad("Pending", 8, ' ')
+                + StringUtils.leftPad("Available", 10, ' ') + StringUtils.leftPad("Max", 8, ' ') + LINE_SEPARATOR);
+        for (Map.Entry<String, PoolStats> entry : stats.entrySet()) {
+            PoolStats poolStats = entry.getValue();
+            buf.append(StringUtils.rightPad(entry.getKey(), 40, ' ')
+                    + StringUtils.leftPad(String.valueOf(poolStats.getLeased()), 8, ' ')
+                    + StringUtils.leftPad(String.valueOf(poolStats.getPending()), 8, ' ')
+                    + StringUtils.leftPad(String.valueOf(poolStats.getAvailable()), 10, ' ')
+                    + StringUtils.leftPad(String.valueOf(poolStats.getMax()), 8, ' ') + LINE_SEPARATOR);
+        }
+        return buf.toString().trim();
+    }
+
     /**
      * list all your buckets
      *
@@ -164,11 +279,11 @@ public class OssOperationCommands {
                          @ShellOption(value = {""}, help = "Bucket name: pattern as [a-z][a-z0-9\\-_]{5,15}") @NotNull String bucket) {
         try {
 
-            aliyunOssService.createBucket(bucket);
+            Bucket created = aliyunOssService.createBucket(bucket);
             if (acl != null && acl.getType() != null) {
                 aliyunOssService.setBucketACL(bucket, acl.getShortCode());
             }
-            BucketEnum.addBucketName(bucket);
+            bucketRegistry.add(created);
             if (localRepository != null) {
                 FileUtils.forceMkdir(new File(localRepository, bucket));
             }
@@ -189,8 +304,8 @@ public class OssOperationCommands {
     public String drop(@ShellOption(value = {""}, help = "Bucket's name") @NotNull BucketEnum bucketEnum) {
         try {
             String bucketName = bucketEnum.getName();
-            Bucket bucket = aliyunOssService.getBucket(bucketName);
-            if (bucket != null) {
+            Bucket bucket = bucketRegistry.getBucket(bucketName);
+            if (bucket == null) {
                 return wrappedAsRed(MessageFormat.format("Bucket ''{0}'' not found!", bucketName));
             }
             ObjectListing listing = aliyunOssService.list(bucketName, "");
@@ -198,6 +313,8 @@ public class OssOperationCommands {
                 return wrappedAsRed("The bucket is not empty, and you can't delete it!");
             }
             aliyunOssService.dropBucket(bucketName);
+            bucketRegistry.remove(bucketName);
+            listingCache.invalidate(bucketName, "");
             if (bucketName.equals(currentBucket.getBucket())) {
                 currentBucket = null;
                 configService.setProperty("BUCKET", null);
@@ -241,6 +358,8 @@ public class OssOperationCommands {
      */
     @ShellMethod(key = "get", value = "Retrieve OSS object and save it to local file system")
     public String get(@ShellOption(value = {"o"}, help = "Local file or directory path") File localFilePath,
+                      @ShellOption(value = {"parallel"}, help = "Parallel range requests for large object", defaultValue = "1") Integer parallel,
+                      @ShellOption(value = {"resume"}, help = "Resume interrupted download of large object", defaultValue = "false") Boolean resume,
                       @ShellOption(value = {""}, help = "OSS object uri or key") @NotNull ObjectKey objectKey) {
         if (currentBucket == null) {
             return wrappedAsYellow("Please select a bucket!");
@@ -254,8 +373,10 @@ public class OssOperationCommands {
             if (localFilePath == null) {
                 localFilePath = objectUri.getPathInRepository(localRepository);
             }
-            String destFilePath = aliyunOssService.get(objectUri, localFilePath.getAbsolutePath());
-            return MessageFormat.format("Object {0} saved to {1} ({3} bytes)", objectUri.toString(), destFilePath, objectMetadata.getContentLength());
+            TransferOptions options = new TransferOptions(false, parallel);
+            options.setResume(resume);
+            String destFilePath = aliyunOssService.get(objectUri, localFilePath.getAbsolutePath(), options);
+            return MessageFormat.format("Object {0} saved to {1} ({2} bytes)", objectUri.toString(), destFilePath, objectMetadata.getContentLength());
         } catch (Exception e) {
             log.error("get", e);
             return e.getMessage();
@@ -273,11 +394,10 @@ public class OssOperationCommands {
             OSSUri objectUri = currentBucket.getChildObjectUri(objectKey.getKey());
             OSSObject ossObject = aliyunOssService.getOssObject(objectUri);
             if (ossObject != null) {
-                byte[] content = IOUtils.toByteArray(ossObject.getObjectContent());
-                if ("gzip".equalsIgnoreCase(ossObject.getObjectMetadata().getContentEncoding())) {
-                    content = ZipUtils.uncompress(content);
+                Codec codec = codecRegistry.getCodec(ossObject.getObjectMetadata().getContentEncoding());
+                try (InputStream content = codec != null ? codec.decode(ossObject.getObjectContent()) : ossObject.getObjectContent()) {
+                    System.out.println(IOUtils.toString(content, StandardCharsets.UTF_8));
                 }
-                System.out.println(new String(content, StandardCharsets.UTF_8));
             } else {
                 return wrappedAsRed("The object not found!");
             }
@@ -325,13 +445,22 @@ public class OssOperationCommands {
     @ShellMethod(key = "put", value = "Upload the local file or directory to OSS")
     public String put(@ShellOption(value = {"source"}, help = "Local file or directory path") @NotNull File sourceFile,
                       @ShellOption(value = {"zip"}, help = "Zip the file", defaultValue = "false") Boolean zip,
+                      @ShellOption(value = {"codec"}, help = "Encode the file with codec: gzip, zstd or br", defaultValue = "") String codec,
+                      @ShellOption(value = {"parallel"}, help = "Parallel part count for large file", defaultValue = "1") Integer parallel,
+                      @ShellOption(value = {"resume"}, help = "Resume interrupted upload of large file, not available with zip", defaultValue = "false") Boolean resume,
+                      @ShellOption(value = {"workers"}, help = "Upload workers for directory", defaultValue = "8") Integer workers,
                       @ShellOption(value = {""}, help = "Destination OSS object uri, key or path") String objectKey) {
         if (!sourceFile.exists()) {
             return wrappedAsRed(MessageFormat.format("The file ''{0}'' not exits. ", sourceFile.getAbsolutePath()));
         }
+        TransferOptions options = new TransferOptions(zip, parallel);
+        options.setCodec(StringUtils.defaultIfEmpty(codec, options.getCodec()));
+        options.setResume(resume);
+        options.setWorkers(workers);
         try {
             if (sourceFile.isDirectory()) {
-                int count = uploadDirectory(currentBucket.getBucket(), StringUtils.defaultIfEmpty(objectKey, ""), sourceFile, false, zip);
+                int count = syncService.uploadDirectory(currentBucket.getBucket(), StringUtils.defaultIfEmpty(objectKey, ""), sourceFile, false, options);
+                listingCache.invalidate(currentBucket.getBucket(), StringUtils.defaultIfEmpty(objectKey, ""));
                 return count + " files uploaded";
             } else {
                 if (objectKey == null || objectKey.isEmpty()) {
@@ -341,7 +470,8 @@ public class OssOperationCommands {
                     objectKey = objectKey + sourceFile.getName();
                 }
                 OSSUri destObjectUri = currentBucket.getChildObjectUri(objectKey);
-                ObjectMetadata metadata = aliyunOssService.put(sourceFile.getAbsolutePath(), destObjectUri, zip);
+                ObjectMetadata metadata = aliyunOssService.put(sourceFile.getAbsolutePath(), destObjectUri, options);
+                listingCache.invalidate(destObjectUri.getBucket(), destObjectUri.getFilePath());
                 return MessageFormat.format("File ''{0}'' stored as {1} ({2} bytes)",
                         sourceFile.getAbsolutePath(), destObjectUri.toString(), metadata.getContentLength());
             }
@@ -351,55 +481,6 @@ public class OssOperationCommands {
         }
     }
 
-    /**
-     * upload directory
-     *
-     * @param bucket       bucket
-     * @param destFilePath dest file name
-     * @param sourceDir    source directory
-     * @param synced       synced mark
-     * @throws Exception exception
-     */
-    private int uploadDirectory(String bucket, String destFilePath, File sourceDir, boolean synced, Boolean zip) throws Exception {
-        Collection<File> files = FileUtils.listFiles(sourceDir, new AbstractFileFilter() {
-                    public boolean accept(File file) {
-                        return !file.getName().startsWith(".");
-                    }
-                }, new AbstractFileFilter() {
-                    public boolean accept(File dir, String name) {
-                        return !name.startsWith(".");
-                    }
-                }
-        );
-        int count = files.size();
-        for (File file : files) {
-            String destPath = file.getAbsolutePath().replace(sourceDir.getAbsolutePath(), "");
-            destPath = destFilePath + destPath.replaceAll("\\\\", "/");
-            if (destPath.contains("//")) {
-                destPath = destPath.replace("//", "/");
-            }
-            boolean overwrite = true;
-            OSSUri objectUri = new OSSUri(bucket, destPath);
-            //sync validation
-            if (synced) {
-                ObjectMetadata objectMetadata = aliyunOssService.getObjectMetadata(objectUri);
-                if (objectMetadata != null) {
-                    if (objectMetadata.getLastModified().getTime() >= file.lastModified() && file.length() == objectMetadata.getContentLength()) {
-                        overwrite = false;
-                    }
-                }
-            }
-            if (overwrite) {
-                aliyunOssService.put(file.getAbsolutePath(), objectUri, zip);
-                System.out.println("Uploaded: " + objectUri);
-            } else {
-                System.out.println("Skipped: " + objectUri);
-                count = count - 1;
-            }
-        }
-        return count;
-    }
-
     /**
      * sync directory
      *
@@ -409,6 +490,12 @@ public class OssOperationCommands {
     public String sync(@ShellOption(value = {"source"}, help = "local directory") @Nullable File sourceFile,
                        @ShellOption(value = {"bucket"}, help = "bucket name") @Nullable BucketEnum bucketEnum,
                        @ShellOption(value = {"zip"}, help = "GZip the file", defaultValue = "false") Boolean zip,
+                       @ShellOption(value = {"codec"}, help = "Encode the file with codec: gzip, zstd or br", defaultValue = "") String codec,
+                       @ShellOption(value = {"parallel"}, help = "Parallel part count for large file", defaultValue = "1") Integer parallel,
+                       @ShellOption(value = {"workers"}, help = "Upload workers for directory", defaultValue = "8") Integer workers,
+                       @ShellOption(value = {"checksum"}, help = "Compare MD5/CRC64 instead of modified time", defaultValue = "false") Boolean checksum,
+                       @ShellOption(value = {"download"}, help = "Download from OSS to local directory", defaultValue = "false") Boolean download,
+                       @ShellOption(value = {"delete"}, help = "Delete local files missing in OSS when downloading", defaultValue = "false") Boolean delete,
                        @ShellOption(value = {""}, help = "OSS object path") String objectPath) {
         if (currentBucket == null) {
             return wrappedAsYellow("Please select a bucket!");
@@ -419,20 +506,40 @@ public class OssOperationCommands {
         }
         //如果source file为空，进行bucket同步，同时忽略object path
         if (sourceFile == null) {
-            sourceFile = new File(localRepository, bucketEnum.getName());
+            if (localRepository == null) {
+                return wrappedAsYellow("Please use config to set local repository");
+            }
             bucketName = bucketEnum.getName();
             objectPath = "";
+            sourceFile = new OSSUri(bucketName, objectPath).getPathInRepository(localRepository);
+        }
+        if (download) {
+            if (zip || StringUtils.isNotEmpty(codec) || checksum) {
+                return wrappedAsYellow("--zip, --codec and --checksum can't be used with --download, objects are decoded by their Content-Encoding");
+            }
+            TransferOptions options = new TransferOptions(false, parallel);
+            options.setWorkers(workers);
+            return syncDown(bucketName, StringUtils.defaultIfEmpty(objectPath, ""), sourceFile, delete, options);
         }
         if (!sourceFile.exists()) {
             return wrappedAsRed(MessageFormat.format("File ''{0}'' not exits: ", sourceFile.getAbsolutePath()));
         }
+        TransferOptions options = new TransferOptions(zip, parallel);
+        options.setCodec(StringUtils.defaultIfEmpty(codec, options.getCodec()));
+        if (options.isZip() && checksum) {
+            return wrappedAsYellow("--checksum can't be used with --zip or --codec, because ETag of encoded object is not for local content");
+        }
+        options.setWorkers(workers);
+        options.setChecksum(checksum);
         try {
             if (sourceFile.isDirectory()) {
-                int count = uploadDirectory(bucketName, StringUtils.defaultIfEmpty(objectPath, ""), sourceFile, true, zip);
+                int count = syncService.uploadDirectory(bucketName, StringUtils.defaultIfEmpty(objectPath, ""), sourceFile, true, options);
+                listingCache.invalidate(bucketName, StringUtils.defaultIfEmpty(objectPath, ""));
                 return count + " files uploaded!";
             } else {
                 OSSUri objectUri = currentBucket.getChildObjectUri(objectPath);
-                ObjectMetadata metadata = aliyunOssService.put(sourceFile.getAbsolutePath(), objectUri);
+                ObjectMetadata metadata = aliyunOssService.put(sourceFile.getAbsolutePath(), objectUri, options);
+                listingCache.invalidate(objectUri.getBucket(), objectUri.getFilePath());
                 return MessageFormat.format("File '{0}' stored as {1} ({2} bytes)",
                         sourceFile.getAbsolutePath(), objectUri.toString(), metadata.getContentLength());
             }
@@ -442,53 +549,88 @@ public class OssOperationCommands {
         }
     }
 
+    /**
+     * sync objects from OSS to local directory
+     *
+     * @param bucketName bucket name
+     * @param objectPath object path
+     * @param destDir    dest directory
+     * @param delete     delete local files missing in OSS
+     * @param options    transfer options
+     * @return message
+     */
+    private String syncDown(String bucketName, String objectPath, File destDir, boolean delete, TransferOptions options) {
+        if (destDir.isFile()) {
+            return wrappedAsRed(MessageFormat.format("''{0}'' is not a directory", destDir.getAbsolutePath()));
+        }
+        try {
+            int count = syncService.downloadDirectory(bucketName, objectPath, destDir, delete, options);
+            return count + " objects downloaded!";
+        } catch (Exception e) {
+            log.error("sync", e);
+            return wrappedAsRed(e.getMessage());
+        }
+    }
+
     /**
      * list files
      *
      * @return content
      */
     @ShellMethod(key = "ls", value = "List object or virtual directory in Bucket")
-    public String ls(@ShellOption(value = "", help = "Object key or path: support suffix wild match", defaultValue = "*") String objectPath) {
+    public String ls(@ShellOption(value = {"all"}, help = "List all objects page by page", defaultValue = "false") Boolean all,
+                     @ShellOption(value = "", help = "Object key or path: support suffix wild match", defaultValue = "*") String objectPath) {
         if (currentBucket == null) {
             return listBuckets();
         }
         StringBuilder buf = new StringBuilder();
         OSSUri dirObject = currentBucket.getChildObjectUri(objectPath);
+        boolean recursive = dirObject.getFilePath().endsWith("*");
         try {
-            ObjectListing objectListing;
-            if (dirObject.getFilePath().endsWith("*")) {
-                objectListing = aliyunOssService.list(currentBucket.getBucket(), dirObject.getFilePath());
-            } else {
-                objectListing = aliyunOssService.listChildren(currentBucket.getBucket(), dirObject.getFilePath());
-            }
             int dirCount = 0;
             int objectCount = 0;
-            if (!objectListing.getCommonPrefixes().isEmpty()) {
-                for (String commonPrefix : objectListing.getCommonPrefixes()) {
-                    buf.append(StringUtils.repeat("-.", 14) + "- " + commonPrefix + LINE_SEPARATOR);
-                    dirCount += 1;
-                }
-            }
-            if (!objectListing.getObjectSummaries().isEmpty()) {
-                for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
-                    String objectKey = objectSummary.getKey();
-                    if (currentBucket.getFilePath() != null && objectKey.startsWith(currentBucket.getFilePath())) {
-                        objectKey = objectKey.substring(currentBucket.getFilePath().length());
+            if (all && recursive) {
+                //sharded concurrent listing, rows are streamed in key order
+                AtomicInteger counter = new AtomicInteger();
+                aliyunOssService.listAll(currentBucket.getBucket(), dirObject.getFilePath(), true, objectSummary -> {
+                    System.out.println(formatObjectRow(objectSummary));
+                    counter.incrementAndGet();
+                });
+                return countSummary(0, counter.get(), dirObject);
+            } else if (all) {
+                //stream rows to terminal as pages arrive
+                for (ObjectListing objectListing : aliyunOssService.listChildrenPages(currentBucket.getBucket(), dirObject.getFilePath(), LIST_PAGE_SIZE)) {
+                    for (String commonPrefix : objectListing.getCommonPrefixes()) {
+                        System.out.println(formatDirectoryRow(commonPrefix));
+                        dirCount += 1;
+                    }
+                    for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+                        System.out.println(formatObjectRow(objectSummary));
+                        objectCount += 1;
                     }
-                    buf.append(DateUtils.formatDate(objectSummary.getLastModified(), "yyyy-MM-dd HH:mm:ss") +
-                            StringUtils.leftPad(String.valueOf(objectSummary.getSize()), 10, ' ') + " " +
-                            objectKey + LINE_SEPARATOR);
-                    objectCount += 1;
                 }
+                return countSummary(dirCount, objectCount, dirObject);
             }
-            if (dirCount > 0 && objectCount > 0) {
-                buf.append(dirCount + " virtual directories and " + objectCount + " objects found!");
-            } else if (dirCount > 0) {
-                buf.append(dirCount + " virtual directories found!");
-            } else if (objectCount > 0) {
-                buf.append(objectCount + " objects found!");
+            ObjectListing objectListing;
+            if (recursive) {
+                objectListing = aliyunOssService.list(currentBucket.getBucket(), dirObject.getFilePath());
             } else {
-                buf.append("No object found for " + dirObject.toString());
+                String dir = dirObject.getFilePath();
+                objectListing = listingCache.getListing(currentBucket.getBucket(), dir.isEmpty() || dir.endsWith("/") ? dir : dir + "/", false);
+            }
+            for (String commonPrefix : objectListing.getCommonPrefixes()) {
+                buf.append(formatDirectoryRow(commonPrefix) + LINE_SEPARATOR);
+                dirCount += 1;
+            }
+            for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+                buf.append(formatObjectRow(objectSummary) + LINE_SEPARATOR);
+                objectCount += 1;
+            }
+            buf.append(countSummary(dirCount, objectCount, dirObject));
+            //next ls of displayed directories is served from cache
+            listingCache.prefetch(currentBucket.getBucket(), objectListing.getCommonPrefixes());
+            if (objectListing.isTruncated()) {
+                buf.append(LINE_SEPARATOR + wrappedAsYellow("More objects available, use --all to list all of them"));
             }
             return buf.toString();
         } catch (Exception e) {
@@ -497,6 +639,117 @@ public class OssOperationCommands {
         }
     }
 
+    /**
+     * disk usage: aggregated size and object count per virtual directory
+     *
+     * @return content
+     */
+    @ShellMethod(key = "du", value = "Display size and object count of virtual directories")
+    public String du(@ShellOption(value = {"depth"}, help = "Virtual directory depth to aggregate", defaultValue = "1") Integer depth,
+                     @ShellOption(value = "", help = "Object path or prefix", defaultValue = "") String objectPath) {
+        if (currentBucket == null) {
+            return wrappedAsYellow("Please select a bucket!");
+        }
+        OSSUri dirObject = currentBucket.getChildObjectUri(objectPath);
+        String filePath = StringUtils.defaultString(dirObject.getFilePath());
+        //"dir" is a virtual directory as ls, "dir*" is a key prefix
+        String prefix = filePath.endsWith("*") ? StringUtils.removeEnd(filePath, "*")
+                : filePath.isEmpty() || filePath.endsWith("/") ? filePath : filePath + "/";
+        //long accumulators per prefix: [bytes, objects]
+        Map<String, AtomicLongArray> usages = new ConcurrentHashMap<>();
+        try {
+            aliyunOssService.listAll(dirObject.getBucket(), prefix, false, objectSummary -> {
+                String dir = getUsageDirectory(prefix, objectSummary.getKey(), depth);
+                AtomicLongArray usage = usages.computeIfAbsent(dir, key -> new AtomicLongArray(2));
+                usage.addAndGet(0, objectSummary.getSize());
+                usage.incrementAndGet(1);
+            });
+        } catch (Exception e) {
+            log.error("du", e);
+            return wrappedAsRed(e.getMessage());
+        }
+        StringBuilder buf = new StringBuilder();
+        long totalBytes = 0;
+        long totalObjects = 0;
+        for (Map.Entry<String, AtomicLongArray> entry : new TreeMap<>(usages).entrySet()) {
+            long bytes = entry.getValue().get(0);
+            long objects = entry.getValue().get(1);
+            buf.append(StringUtils.leftPad(FileUtils.byteCountToDisplaySize(bytes), 10, ' ')
+                    + StringUtils.leftPad(String.valueOf(objects), 12, ' ') + " " + OSSUri.PROTOCOL + dirObject.getBucket() + "/" + entry.getKey() + LINE_SEPARATOR);
+            totalBytes += bytes;
+            totalObjects += objects;
+        }
+        buf.append(MessageFormat.format("Total: {0} ({1} bytes) in {2} objects", FileUtils.byteCountToDisplaySize(totalBytes),
+                String.valueOf(totalBytes), String.valueOf(totalObjects)));
+        return buf.toString();
+    }
+
+    /**
+     * get virtual directory of key for du, limited by depth below prefix
+     *
+     * @param prefix prefix
+     * @param key    object key
+     * @param depth  depth
+     * @return virtual directory
+     */
+    private static String getUsageDirectory(String prefix, String key, int depth) {
+        String relativeKey = key.substring(prefix.length());
+        int end = 0;
+        for (int i = 0; i < depth; i++) {
+            int index = relativeKey.indexOf('/', end);
+            if (index < 0) {
+                break;
+            }
+            end = index + 1;
+        }
+        return prefix + relativeKey.substring(0, end);
+    }
+
+    /**
+     * format virtual directory row for ls
+     *
+     * @param commonPrefix common prefix
+     * @return row text
+     */
+    private String formatDirectoryRow(String commonPrefix) {
+        return StringUtils.repeat("-.", 14) + "- " + commonPrefix;
+    }
+
+    /**
+     * format object row for ls
+     *
+     * @param objectSummary object summary
+     * @return row text
+     */
+    private String formatObjectRow(OSSObjectSummary objectSummary) {
+        String objectKey = objectSummary.getKey();
+        if (currentBucket.getFilePath() != null && objectKey.startsWith(currentBucket.getFilePath())) {
+            objectKey = objectKey.substring(currentBucket.getFilePath().length());
+        }
+        return DateUtils.formatDate(objectSummary.getLastModified(), "yyyy-MM-dd HH:mm:ss") +
+                StringUtils.leftPad(String.valueOf(objectSummary.getSize()), 10, ' ') + " " + objectKey;
+    }
+
+    /**
+     * count summary for ls
+     *
+     * @param dirCount    virtual directory count
+     * @param objectCount object count
+     * @param dirObject   listed directory
+     * @return summary
+     */
+    private String countSummary(int dirCount, int objectCount, OSSUri dirObject) {
+        if (dirCount > 0 && objectCount > 0) {
+            return dirCount + " virtual directories and " + objectCount + " objects found!";
+        } else if (dirCount > 0) {
+            return dirCount + " virtual directories found!";
+        } else if (objectCount > 0) {
+            return objectCount + " objects found!";
+        } else {
+            return "No object found for " + dirObject.toString();
+        }
+    }
+
     /**
      * list buckets
      *
@@ -506,7 +759,7 @@ public class OssOperationCommands {
         StringBuilder buf = new StringBuilder();
         try {
             buf.append("Buckets:" + LINE_SEPARATOR);
-            List<Bucket> buckets = aliyunOssService.getBuckets();
+            List<Bucket> buckets = bucketRegistry.getBuckets();
             for (Bucket bucket : buckets) {
                 //create time
                 buf.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(bucket.getCreationDate()));
@@ -540,6 +793,9 @@ public class OssOperationCommands {
             }
             String currentDir = currentBucket.getChildObjectUri(dir).getFilePath();
             currentBucket.setFilePath(currentDir);
+            listingCache.refreshAsync(currentBucket.getBucket(), currentDir);
+            String parentDir = StringUtils.removeEnd(currentDir, "/");
+            listingCache.refreshAsync(currentBucket.getBucket(), parentDir.substring(0, parentDir.lastIndexOf('/') + 1));
         }
         OssCliPromptProvider.prompt = currentBucket.toString();
         return currentBucket.toString();
@@ -567,7 +823,7 @@ public class OssOperationCommands {
     public String use(@ShellOption(value = {""}, help = "bucket name") @NotNull BucketEnum bucketEnum) {
         try {
             String bucketName = bucketEnum.getName();
-            Bucket bucket = aliyunOssService.getBucket(bucketName);
+            Bucket bucket = bucketRegistry.getBucket(bucketName);
             if (bucket == null) {
                 return wrappedAsRed("The bucket not found");
             }
@@ -654,25 +910,26 @@ public class OssOperationCommands {
      * @return content
      */
     @ShellMethod(key = "rm", value = "Delete OSS object")
-    public String rm(@ShellOption(value = {""}, help = "OSS object uri or key: support suffix wild match") @NotNull ObjectKey objectKey) {
+    public String rm(@ShellOption(value = {"quiet"}, help = "Don't print deleted objects", defaultValue = "false") Boolean quiet,
+                     @ShellOption(value = {""}, help = "OSS object uri or key: support suffix wild match") @NotNull ObjectKey objectKey) {
         try {
             String filePath = objectKey.getKey();
-            if (filePath.endsWith("*") || filePath.endsWith("/")) {
-                ObjectListing list = aliyunOssService.list(currentBucket.getBucket(), filePath);
-                int size = list.getObjectSummaries().size();
-                for (OSSObjectSummary objectSummary : list.getObjectSummaries()) {
-                    OSSUri objectToDeleted = currentBucket.getChildObjectUri(objectSummary.getKey());
-                    aliyunOssService.delete(objectToDeleted);
-                    System.out.println("Deleted: " + objectToDeleted.toString());
-                }
-                if (size > 1) {
-                    return size + " objects deleted!";
-                } else {
-                    return "1 object deleted!";
+            if (isPrefix(filePath)) {
+                OSSUri prefixUri = currentBucket.getChildObjectUri(filePath);
+                try (BatchDeleter deleter = new BatchDeleter(aliyunOssService, prefixUri.getBucket(), DELETE_PARALLEL, quiet)) {
+                    aliyunOssService.listAll(prefixUri.getBucket(), prefixUri.getFilePath(), false, objectSummary -> deleter.add(objectSummary.getKey()));
+                    long size = deleter.finish();
+                    listingCache.invalidate(prefixUri.getBucket(), prefixUri.getFilePath());
+                    if (size != 1) {
+                        return size + " objects deleted!";
+                    } else {
+                        return "1 object deleted!";
+                    }
                 }
             } else {
                 OSSUri destObject = currentBucket.getChildObjectUri(filePath);
                 aliyunOssService.delete(destObject);
+                listingCache.invalidate(destObject.getBucket(), destObject.getFilePath());
                 return "Deleted: " + destObject.toString();
             }
         } catch (Exception e) {
@@ -687,12 +944,18 @@ public class OssOperationCommands {
      * @return content
      */
     @ShellMethod(key = "cp", value = "Copy OSS object")
-    public String cp(@ShellOption(value = {"object"}, help = "Source object key or uri") @NotNull ObjectKey sourceObjectKey,
+    public String cp(@ShellOption(value = {"object"}, help = "Source object key or uri: support prefix and suffix wild match") @NotNull ObjectKey sourceObjectKey,
                      @ShellOption(value = {"dest"}, help = "Dest object key") @NotNull String destFilePath) {
         try {
             OSSUri sourceUri = currentBucket.getChildObjectUri(sourceObjectKey.getKey());
             OSSUri destUri = currentBucket.getChildObjectUri(destFilePath);
+            if (isPrefix(sourceObjectKey.getKey())) {
+                long count = copyObjects(sourceUri, destUri, false);
+                listingCache.invalidate(destUri.getBucket(), destUri.getFilePath());
+                return MessageFormat.format("{0} objects of ''{1}'' have been copied to ''{2}''", count, sourceUri.toString(), destUri.toString());
+            }
             aliyunOssService.copy(sourceUri, destUri);
+            listingCache.invalidate(destUri.getBucket(), destUri.getFilePath());
             return MessageFormat.format("''{0}'' has been copied to ''{1}''", sourceUri.toString(), destUri.toString());
         } catch (Exception e) {
             log.error("cp", e);
@@ -706,13 +969,21 @@ public class OssOperationCommands {
      * @return content
      */
     @ShellMethod(key = "mv", value = "Move OSS Object")
-    public String mv(@ShellOption(value = {"object"}, help = "Source object key") @NotNull ObjectKey sourceObjectKey,
+    public String mv(@ShellOption(value = {"object"}, help = "Source object key: support prefix and suffix wild match") @NotNull ObjectKey sourceObjectKey,
                      @ShellOption(value = {""}, help = "Dest object key") @NotNull String destFilePath) {
         try {
             OSSUri sourceUri = currentBucket.getChildObjectUri(sourceObjectKey.getKey());
             OSSUri destUri = currentBucket.getChildObjectUri(destFilePath);
+            if (isPrefix(sourceObjectKey.getKey())) {
+                long count = copyObjects(sourceUri, destUri, true);
+                listingCache.invalidate(sourceUri.getBucket(), sourceUri.getFilePath());
+                listingCache.invalidate(destUri.getBucket(), destUri.getFilePath());
+                return MessageFormat.format("{0} objects of ''{1}'' have been moved to ''{2}''", count, sourceUri.toString(), destUri.toString());
+            }
             aliyunOssService.copy(sourceUri, destUri);
             aliyunOssService.delete(sourceUri);
+            listingCache.invalidate(sourceUri.getBucket(), sourceUri.getFilePath());
+            listingCache.invalidate(destUri.getBucket(), destUri.getFilePath());
             return MessageFormat.format("''{0}'' has been moved to ''{1}''", sourceUri.toString(), destUri.toString());
         } catch (Exception e) {
             log.error("mv", e);
@@ -720,18 +991,95 @@ public class OssOperationCommands {
         }
     }
 
+    /**
+     * copy all objects under source prefix into dest directory with concurrent server-side copies.
+     * key is relative to the source's virtual directory, so that "logs/2023*" copies "logs/2023-01/a" as "2023-01/a".
+     * for move, source keys are deleted in batches after their copy succeeded
+     *
+     * @param sourceUri source prefix uri, may end with *
+     * @param destUri   dest directory uri
+     * @param move      move mark
+     * @return copied object count
+     * @throws Exception exception
+     */
+    private long copyObjects(OSSUri sourceUri, OSSUri destUri, boolean move) throws Exception {
+        String sourcePrefix = StringUtils.removeEnd(StringUtils.defaultString(sourceUri.getFilePath()), "*");
+        String sourceBase = sourcePrefix.substring(0, sourcePrefix.lastIndexOf('/') + 1);
+        String destDir = StringUtils.defaultString(destUri.getFilePath());
+        if (!destDir.isEmpty() && !destDir.endsWith("/")) {
+            destDir = destDir + "/";
+        }
+        if (sourceUri.getBucket().equals(destUri.getBucket())) {
+            if (destDir.equals(sourceBase)) {
+                throw new IllegalArgumentException("Dest directory should not be same as source directory: " + destUri);
+            }
+            if (destDir.startsWith(sourcePrefix)) {
+                throw new IllegalArgumentException("Dest directory should not be inside source: " + destUri);
+            }
+        }
+        final String destPrefix = destDir;
+        try (TransferProgress progress = new TransferProgress();
+             BoundedExecutor executor = new BoundedExecutor("oss-copy", COPY_PARALLEL, COPY_PARALLEL * 16);
+             BatchDeleter deleter = new BatchDeleter(aliyunOssService, sourceUri.getBucket(), DELETE_PARALLEL, true)) {
+            aliyunOssService.listAll(sourceUri.getBucket(), sourcePrefix, false, objectSummary -> {
+                String key = objectSummary.getKey();
+                OSSUri objectUri = new OSSUri(sourceUri.getBucket(), key);
+                OSSUri destObjectUri = new OSSUri(destUri.getBucket(), destPrefix + key.substring(sourceBase.length()));
+                executor.submit(() -> {
+                    try {
+                        aliyunOssService.copy(objectUri, destObjectUri, objectSummary.getSize());
+                        progress.transferred(objectSummary.getSize());
+                    } catch (Exception e) {
+                        log.error("copy", e);
+                        progress.failed();
+                        System.out.println("Failed: " + objectUri + " " + e.getMessage());
+                        return;
+                    }
+                    if (move) {
+                        deleter.add(key);
+                    }
+                });
+            });
+            executor.await();
+            if (move) {
+                deleter.finish();
+            }
+            System.out.println("Finished: " + progress);
+            return progress.getTransferred();
+        }
+    }
+
+    /**
+     * is object key a prefix or suffix wild match
+     *
+     * @param key object key
+     * @return prefix mark
+     */
+    private static boolean isPrefix(String key) {
+        return key.endsWith("*") || key.endsWith("/");
+    }
+
     /**
      * set object meta data
      *
      * @return content
      */
-    @ShellMethod(key = "set", value = "Set object metadata")
+    @ShellMethod(key = "set", value = "Set object metadata, for prefix ASYNC_HEAD=1 in ~/.aliyunoss.cfg fetches current metadata with async transport")
     public String set(@ShellOption(value = {"key"}, help = "Metadata key") @NotNull HttpHeader httpHeader,
                       @ShellOption(value = {"value"}, help = "Metadata value") @NotNull String value,
-                      @ShellOption(value = {""}, help = "Object key") @NotNull ObjectKey objectKey) {
+                      @ShellOption(value = {"dry-run"}, help = "Only print matched objects summary", defaultValue = "false") Boolean dryRun,
+                      @ShellOption(value = {""}, help = "Object key: support prefix and suffix wild match") @NotNull ObjectKey objectKey) {
         try {
             String key = httpHeader.getName();
-            aliyunOssService.setObjectMetadata(currentBucket.getChildObjectUri(objectKey.getKey()), key, value);
+            if (isPrefix(objectKey.getKey())) {
+                OSSUri prefixUri = currentBucket.getChildObjectUri(objectKey.getKey());
+                String summary = setObjectsMetadata(prefixUri, key, value, dryRun);
+                listingCache.invalidate(prefixUri.getBucket(), prefixUri.getFilePath());
+                return summary;
+            }
+            OSSUri objectUri = currentBucket.getChildObjectUri(objectKey.getKey());
+            aliyunOssService.setObjectMetadata(objectUri, key, value);
+            listingCache.invalidate(objectUri.getBucket(), objectUri.getFilePath());
         } catch (Exception e) {
             log.error("set", e);
             return e.getMessage();
@@ -739,6 +1087,104 @@ public class OssOperationCommands {
         return file(new ObjectKey(objectKey.getKey()));
     }
 
+    /**
+     * set metadata of all objects under prefix concurrently, objects with the value already set are skipped.
+     * CopyObject with REPLACE directive drops every header which is not sent again, and listing has no
+     * Content-Type, Cache-Control or user metadata, so current metadata is fetched once per object, and only
+     * size is reused from listing. with ASYNC_HEAD=1 current metadata is fetched by async service, so HEAD requests
+     * of unchanged objects don't hold copy workers. dry run only counts matched objects and bytes from listing
+     *
+     * @param prefixUri prefix uri, may end with *
+     * @param key       metadata key
+     * @param value     metadata value
+     * @param dryRun    dry run mark
+     * @return summary
+     * @throws Exception exception
+     */
+    private String setObjectsMetadata(OSSUri prefixUri, String key, String value, boolean dryRun) throws Exception {
+        String bucketName = prefixUri.getBucket();
+        if (dryRun) {
+            AtomicLongArray usage = new AtomicLongArray(2);
+            aliyunOssService.listAll(bucketName, prefixUri.getFilePath(), false, objectSummary -> {
+                usage.addAndGet(0, objectSummary.getSize());
+                usage.incrementAndGet(1);
+            });
+            return MessageFormat.format("{0}: {1} would be set on {2} objects ({3})", key, value, usage.get(1),
+                    FileUtils.byteCountToDisplaySize(usage.get(0)));
+        }
+        boolean asyncHead = configService.getLongProperty(ASYNC_HEAD, 0) != 0;
+        Semaphore heads = new Semaphore(ASYNC_HEAD_IN_FLIGHT);
+        try (TransferProgress progress = new TransferProgress();
+             BoundedExecutor executor = new BoundedExecutor("oss-set", COPY_PARALLEL, COPY_PARALLEL * 16)) {
+            aliyunOssService.listAll(bucketName, prefixUri.getFilePath(), false, objectSummary -> {
+                OSSUri objectUri = new OSSUri(bucketName, objectSummary.getKey());
+                if (!asyncHead) {
+                    executor.submit(() -> setObjectMetadata(objectUri, null, objectSummary.getSize(), key, value, progress));
+                    return;
+                }
+                heads.acquire();
+                asyncOssService.getObjectMetadata(objectUri).whenComplete((objectMetadata, e) -> {
+                    try {
+                        if (e != null) {
+                            reportSetFailure(objectUri, e, progress);
+                        } else if (objectMetadata == null) {
+                            //deleted after listed
+                            progress.skipped();
+                        } else {
+                            executor.submit(() -> setObjectMetadata(objectUri, objectMetadata, objectSummary.getSize(), key, value, progress));
+                        }
+                    } catch (Exception submitError) {
+                        reportSetFailure(objectUri, submitError, progress);
+                    } finally {
+                        heads.release();
+                    }
+                });
+            });
+            heads.acquire(ASYNC_HEAD_IN_FLIGHT);
+            executor.await();
+            return "Finished: " + progress;
+        }
+    }
+
+    /**
+     * set metadata of object and count it in progress, the failure is reported instead of stopping others
+     *
+     * @param objectUri      object uri
+     * @param objectMetadata current object metadata, null to HEAD it
+     * @param size           object size
+     * @param key            metadata key
+     * @param value          metadata value
+     * @param progress       progress
+     */
+    private void setObjectMetadata(OSSUri objectUri, @Nullable ObjectMetadata objectMetadata, long size, String key, String value,
+                                   TransferProgress progress) {
+        try {
+            boolean updated = objectMetadata == null ? aliyunOssService.setObjectMetadata(objectUri, key, value)
+                    : aliyunOssService.setObjectMetadata(objectUri, objectMetadata, key, value);
+            if (updated) {
+                progress.transferred(size);
+            } else {
+                progress.skipped();
+            }
+        } catch (Exception e) {
+            reportSetFailure(objectUri, e, progress);
+        }
+    }
+
+    /**
+     * report failure of metadata rewrite
+     *
+     * @param objectUri object uri
+     * @param e         failure
+     * @param progress  progress
+     */
+    private void reportSetFailure(OSSUri objectUri, Throwable e, TransferProgress progress) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("set", cause);
+        progress.failed();
+        System.out.println("Failed: " + objectUri + " " + cause.getMessage());
+    }
+
     /**
      * wrapped as red with Jansi
      *
@@ -1,12 +1,6 @@
 package org.mvnsearch.ali.oss.spring.shell.converters;
 
 
-import com.aliyun.oss.model.Bucket;
-
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
 /**
  * bucket enum
  *
@@ -17,35 +11,6 @@ public class BucketEnum {
      * bucket name
      */
     private String name;
-    /**
-     * bucket name list
-     */
-    private static final Set<String> bucketNames = new HashSet<String>();
-
-    /**
-     * get bucket names
-     *
-     * @return bucket names
-     */
-    public static Set<String> getBucketNames() {
-        return bucketNames;
-    }
-
-    /**
-     * add bucket name
-     *
-     * @param name bucket name
-     */
-    public static void addBucketName(String name) {
-        bucketNames.add(name);
-    }
-
-    /**
-     * clear
-     */
-    public static void clear() {
-        bucketNames.clear();
-    }
 
     /**
      * set bucket name
@@ -74,18 +39,4 @@ public class BucketEnum {
         return name;
     }
 
-    /**
-     * reset bucket name
-     *
-     * @param buckets oss bucket list
-     */
-    public static void reset(List<Bucket> buckets) {
-        if (buckets != null) {
-            clear();
-            for (Bucket bucket : buckets) {
-                addBucketName(bucket.getName());
-            }
-        }
-    }
-
 }
@@ -2,6 +2,8 @@ package org.mvnsearch.ali.oss.spring.shell.converters;
 
 
 import org.jetbrains.annotations.NotNull;
+import org.mvnsearch.ali.oss.spring.services.BucketRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
@@ -17,7 +19,20 @@ import java.util.List;
  */
 @Component
 public class BucketEnumConverter implements Converter<String, BucketEnum>, ValueProvider {
-
+    /**
+     * bucket registry
+     */
+    private BucketRegistry bucketRegistry;
+
+    /**
+     * inject bucket registry
+     *
+     * @param bucketRegistry bucket registry
+     */
+    @Autowired
+    public void setBucketRegistry(BucketRegistry bucketRegistry) {
+        this.bucketRegistry = bucketRegistry;
+    }
 
     @Override
     public BucketEnum convert(@NotNull String value) {
@@ -29,6 +44,6 @@ public class BucketEnumConverter implements Converter<String, BucketEnum>, Value
 
     @Override
     public List<CompletionProposal> complete(CompletionContext completionContext) {
-        return BucketEnum.getBucketNames().stream().map(CompletionProposal::new).toList();
+        return bucketRegistry.getBucketNames().stream().map(CompletionProposal::new).toList();
     }
 }
@@ -2,10 +2,14 @@ package org.mvnsearch.ali.oss.spring.shell.converters;
 
 import com.aliyun.oss.model.OSSObjectSummary;
 import com.aliyun.oss.model.ObjectListing;
+import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
-import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.ListingCache;
 import org.mvnsearch.ali.oss.spring.services.OSSUri;
 import org.mvnsearch.ali.oss.spring.shell.commands.OssOperationCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.shell.CompletionContext;
 import org.springframework.shell.CompletionProposal;
@@ -17,24 +21,29 @@ import java.util.Collections;
 import java.util.List;
 
 /**
- * object key converter
+ * object key converter, completion proposes children of the typed virtual directory from listing cache
  *
  * @author linux_china
  */
 @Component
 public class ObjectKeyConverter implements Converter<String, ObjectKey>, ValueProvider {
     /**
-     * aliyun OSS service
+     * log
      */
-    private AliyunOssService aliyunOssService;
+    private static final Logger log = LoggerFactory.getLogger(ObjectKeyConverter.class);
+    /**
+     * listing cache
+     */
+    private ListingCache listingCache;
 
     /**
-     * inject aliyun oss service
+     * inject listing cache
      *
-     * @param aliyunOssService aliyun oss service
+     * @param listingCache listing cache
      */
-    public void setAliyunOssService(AliyunOssService aliyunOssService) {
-        this.aliyunOssService = aliyunOssService;
+    @Autowired
+    public void setListingCache(ListingCache listingCache) {
+        this.listingCache = listingCache;
     }
 
     @Override
@@ -44,28 +53,24 @@ public class ObjectKeyConverter implements Converter<String, ObjectKey>, ValuePr
 
     @Override
     public List<CompletionProposal> complete(CompletionContext completionContext) {
-        String existingData = completionContext.currentWord();
+        String existingData = StringUtils.defaultString(completionContext.currentWord());
         OSSUri objectUri = OssOperationCommands.currentBucket;
-        if (existingData != null && existingData.startsWith("oss://")) {
+        if (objectUri == null || objectUri.getBucket() == null || existingData.startsWith("oss://")) {
             return Collections.emptyList();
         }
         try {
-            String bucketName = objectUri.getBucket();
-            String key = objectUri.getFilePath();
-            ObjectListing objectListing = aliyunOssService.list(bucketName, key + existingData, 40);
+            String key = StringUtils.defaultString(objectUri.getFilePath());
+            ObjectListing objectListing = listingCache.getListing(objectUri.getBucket(), key + existingData, true);
             List<CompletionProposal> completions = new ArrayList<>();
+            for (String commonPrefix : objectListing.getCommonPrefixes()) {
+                completions.add(new CompletionProposal(commonPrefix.substring(key.length())));
+            }
             for (OSSObjectSummary objectSummary : objectListing.getObjectSummaries()) {
-                String candidate = objectSummary.getKey();
-                if (key != null && candidate.startsWith(key)) {
-                    candidate = candidate.replace(key, "");
-                }
-                if (existingData == null || "".equals(existingData) || candidate.startsWith(existingData) || existingData.startsWith(candidate) || candidate.toUpperCase().startsWith(existingData.toUpperCase()) || existingData.toUpperCase().startsWith(candidate.toUpperCase())) {
-                    completions.add(new CompletionProposal(candidate));
-                }
+                completions.add(new CompletionProposal(objectSummary.getKey().substring(key.length())));
             }
             return completions;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("complete", e);
         }
         return Collections.emptyList();
     }
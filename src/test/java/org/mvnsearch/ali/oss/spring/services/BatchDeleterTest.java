@@ -0,0 +1,96 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * batch deleter test
+ *
+ * @author linux_china
+ */
+public class BatchDeleterTest {
+    /**
+     * deleted batches
+     */
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    /**
+     * test keys are deleted in batches of up to 1000 keys
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testBatches() throws Exception {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            keys.add("logs/" + i + ".txt");
+        }
+        try (BatchDeleter deleter = new BatchDeleter(createService(null), "bucket", 2, true)) {
+            for (String key : keys) {
+                deleter.add(key);
+            }
+            assertThat(deleter.finish()).isEqualTo(2500);
+        }
+        assertThat(batches).hasSize(3);
+        assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(BatchDeleter.BATCH_SIZE));
+        assertThat(batches.stream().mapToInt(List::size).sorted().toArray()).containsExactly(500, 1000, 1000);
+        assertThat(batches.stream().flatMap(List::stream)).containsExactlyInAnyOrderElementsOf(keys);
+    }
+
+    /**
+     * test nothing is requested without keys
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        try (BatchDeleter deleter = new BatchDeleter(createService(null), "bucket", 2, true)) {
+            assertThat(deleter.finish()).isZero();
+        }
+        assertThat(batches).isEmpty();
+    }
+
+    /**
+     * test failed batch is reported by finish
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testFailure() throws Exception {
+        try (BatchDeleter deleter = new BatchDeleter(createService("logs/1500.txt"), "bucket", 1, true)) {
+            for (int i = 0; i < 2000; i++) {
+                deleter.add("logs/" + i + ".txt");
+            }
+            assertThatThrownBy(deleter::finish).hasMessageContaining("AccessDenied");
+        }
+    }
+
+    /**
+     * create stub service recording DeleteObjects batches
+     *
+     * @param failKey key to fail the batch containing it, null for none
+     * @return aliyun oss service
+     */
+    @SuppressWarnings("unchecked")
+    private AliyunOssService createService(String failKey) {
+        return (AliyunOssService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AliyunOssService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("delete") && args.length == 2) {
+                        List<String> keys = (List<String>) args[1];
+                        if (failKey != null && keys.contains(failKey)) {
+                            throw new IllegalStateException("AccessDenied");
+                        }
+                        batches.add(new ArrayList<>(keys));
+                        return keys.size();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,55 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * file hashes test
+ *
+ * @author linux_china
+ */
+public class FileHashesTest {
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+
+    /**
+     * test check value of CRC64 ECMA
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCheckValue() throws Exception {
+        File file = new File(tempDir, "check.txt");
+        Files.write(file.toPath(), "123456789".getBytes(StandardCharsets.US_ASCII));
+        FileHashes fileHashes = FileHashes.of(file);
+        assertThat(fileHashes.getCrc64()).isEqualTo(0x995DC9BBDF1939FAL);
+        assertThat(fileHashes.getMd5Hex()).isEqualTo("25F9E794323B453885F5181F1B624D0B");
+    }
+
+    /**
+     * test memory-mapped file has same hashes as stream
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testMappedFile() throws Exception {
+        //larger than mmap threshold of 4M
+        byte[] content = new byte[5 * 1024 * 1024 + 12345];
+        new Random(7).nextBytes(content);
+        File file = new File(tempDir, "large.bin");
+        Files.write(file.toPath(), content);
+        FileHashes fileHashes = FileHashes.of(file);
+        assertThat(fileHashes.getMd5Hex()).isEqualToIgnoringCase(DigestUtils.md5Hex(content));
+    }
+}
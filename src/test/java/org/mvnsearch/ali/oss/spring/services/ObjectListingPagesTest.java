@@ -0,0 +1,101 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * object listing pages test
+ *
+ * @author linux_china
+ */
+public class ObjectListingPagesTest {
+    /**
+     * object keys in bucket
+     */
+    private final List<String> keys = new ArrayList<>();
+    /**
+     * markers of requested pages
+     */
+    private final List<String> markers = new ArrayList<>();
+
+    /**
+     * test pages are chained by next marker and loaded lazily
+     */
+    @Test
+    public void testPages() {
+        for (int i = 0; i < 25; i++) {
+            keys.add(String.format("logs/%03d.txt", i));
+        }
+        Iterator<ObjectListing> pages = new ObjectListingPages(marker -> load(marker, 10)).iterator();
+        assertThat(markers).isEmpty();
+        List<String> listed = new ArrayList<>();
+        while (pages.hasNext()) {
+            for (OSSObjectSummary summary : pages.next().getObjectSummaries()) {
+                listed.add(summary.getKey());
+            }
+            assertThat(markers).hasSize(listed.size() / 10 + (listed.size() % 10 == 0 ? 0 : 1));
+        }
+        assertThat(listed).containsExactlyElementsOf(keys);
+        assertThat(markers).containsExactly(null, "logs/009.txt", "logs/019.txt");
+        assertThatThrownBy(pages::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    /**
+     * test empty listing is one page
+     */
+    @Test
+    public void testEmpty() {
+        List<ObjectListing> pages = new ArrayList<>();
+        new ObjectListingPages(marker -> load(marker, 10)).forEach(pages::add);
+        assertThat(pages).hasSize(1);
+        assertThat(pages.get(0).getObjectSummaries()).isEmpty();
+    }
+
+    /**
+     * test checked exception of page loader is wrapped
+     */
+    @Test
+    public void testFailure() {
+        Iterator<ObjectListing> pages = new ObjectListingPages(marker -> {
+            throw new Exception("AccessDenied");
+        }).iterator();
+        assertThatThrownBy(pages::next).isInstanceOf(IllegalStateException.class).hasMessage("AccessDenied");
+    }
+
+    /**
+     * load one page after marker
+     *
+     * @param marker  marker, null for first page
+     * @param maxKeys max keys
+     * @return object listing
+     */
+    private ObjectListing load(String marker, int maxKeys) {
+        markers.add(marker);
+        ObjectListing listing = new ObjectListing();
+        String last = null;
+        for (String key : keys) {
+            if (marker != null && key.compareTo(marker) <= 0) {
+                continue;
+            }
+            if (listing.getObjectSummaries().size() == maxKeys) {
+                listing.setTruncated(true);
+                listing.setNextMarker(last);
+                break;
+            }
+            OSSObjectSummary summary = new OSSObjectSummary();
+            summary.setKey(key);
+            listing.addObjectSummary(summary);
+            last = key;
+        }
+        return listing;
+    }
+}
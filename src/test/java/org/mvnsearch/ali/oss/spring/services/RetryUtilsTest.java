@@ -0,0 +1,60 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * retry utils test
+ *
+ * @author linux_china
+ */
+public class RetryUtilsTest {
+
+    /**
+     * test transient failures are retried
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testRetryTransient() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        String result = RetryUtils.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("connection reset");
+            } else if (attempts.get() == 2) {
+                throw new OSSException("busy", "ServiceUnavailable", null, null, null, null, null);
+            }
+            return "ok";
+        }, 3, 1);
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    /**
+     * test permanent failures are thrown at once
+     */
+    @Test
+    public void testNoRetryPermanent() {
+        for (String errorCode : new String[]{OSSErrorCode.ACCESS_DENIED, OSSErrorCode.NO_SUCH_KEY, "PreconditionFailed"}) {
+            AtomicInteger attempts = new AtomicInteger();
+            assertThatThrownBy(() -> RetryUtils.call(() -> {
+                attempts.incrementAndGet();
+                throw new OSSException("failed", errorCode, null, null, null, null, null);
+            }, 3, 1)).isInstanceOf(OSSException.class);
+            assertThat(attempts.get()).isEqualTo(1);
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        assertThatThrownBy(() -> RetryUtils.call(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("bad key");
+        }, 3, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,70 @@
+package org.mvnsearch.ali.oss.spring.services;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * zip utils test
+ *
+ * @author linux_china
+ */
+public class ZipUtilsTest {
+
+    /**
+     * test streaming gzip can be read by GZIPInputStream
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCompressStream() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+        //compressible half
+        System.arraycopy("hello oss ".repeat(content.length / 10).getBytes(StandardCharsets.US_ASCII), 0, content, 0, content.length / 2);
+        try (InputStream compressed = ZipUtils.compress(new ByteArrayInputStream(content), Deflater.BEST_SPEED, 4096)) {
+            byte[] zipContent = IOUtils.toByteArray(compressed);
+            assertThat(zipContent.length).isLessThan(content.length);
+            assertThat(IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(zipContent)))).isEqualTo(content);
+            assertThat(ZipUtils.uncompress(zipContent)).isEqualTo(content);
+        }
+    }
+
+    /**
+     * test streaming gzip of empty content
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCompressEmptyStream() throws Exception {
+        try (InputStream compressed = ZipUtils.compress(new ByteArrayInputStream(new byte[0]), Deflater.DEFAULT_COMPRESSION, 1024)) {
+            assertThat(ZipUtils.uncompress(IOUtils.toByteArray(compressed))).isEmpty();
+        }
+    }
+
+    /**
+     * test parallel block compression emits valid concatenated gzip members
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCompressParallel() throws Exception {
+        byte[] content = "hello oss, ".repeat(100_000).getBytes(StandardCharsets.US_ASCII);
+        try (InputStream compressed = ZipUtils.compressParallel(new ByteArrayInputStream(content), Deflater.DEFAULT_COMPRESSION, 64 * 1024, 4)) {
+            byte[] zipContent = IOUtils.toByteArray(compressed);
+            assertThat(zipContent.length).isLessThan(content.length / 10);
+            assertThat(ZipUtils.uncompress(zipContent)).isEqualTo(content);
+        }
+        try (InputStream compressed = ZipUtils.compressParallel(new ByteArrayInputStream(new byte[0]), Deflater.DEFAULT_COMPRESSION, 1024, 2)) {
+            assertThat(ZipUtils.uncompress(IOUtils.toByteArray(compressed))).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.Bucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * bucket registry test with stub service
+ *
+ * @author linux_china
+ */
+public class BucketRegistryImplTest {
+    /**
+     * temp home directory, without configuration file
+     */
+    @TempDir
+    File tempDir;
+    /**
+     * list buckets calls
+     */
+    private final AtomicInteger listCalls = new AtomicInteger();
+    /**
+     * action run while listing buckets, such as concurrent create or drop
+     */
+    private Runnable onList = () -> {
+    };
+    /**
+     * bucket registry
+     */
+    private BucketRegistryImpl bucketRegistry;
+
+    /**
+     * setup bucket registry with stub service
+     */
+    @BeforeEach
+    public void setUp() {
+        AliyunOssService aliyunOssService = (AliyunOssService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AliyunOssService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getBuckets")) {
+                        listCalls.incrementAndGet();
+                        onList.run();
+                        return List.of(new Bucket("images"), new Bucket("backup"));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        bucketRegistry = new BucketRegistryImpl();
+        bucketRegistry.setAliyunOssService(aliyunOssService);
+        ConfigServiceImpl configService = new ConfigServiceImpl(tempDir);
+        configService.init();
+        bucketRegistry.setConfigService(configService);
+        bucketRegistry.init();
+    }
+
+    /**
+     * shutdown refresher
+     */
+    @AfterEach
+    public void tearDown() {
+        bucketRegistry.destroy();
+    }
+
+    /**
+     * test buckets are listed once and served from registry
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testGetBucket() throws Exception {
+        assertThat(bucketRegistry.getBuckets()).extracting(Bucket::getName).containsExactly("backup", "images");
+        assertThat(bucketRegistry.getBucket("images")).isNotNull();
+        assertThat(bucketRegistry.getBucketNames()).containsExactly("backup", "images");
+        assertThat(listCalls.get()).isEqualTo(1);
+    }
+
+    /**
+     * test reload lists buckets again and replaces dropped ones, as after access info changed
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testReload() throws Exception {
+        bucketRegistry.getBuckets();
+        bucketRegistry.remove("images");
+        assertThat(bucketRegistry.getBucketNames()).containsExactly("backup");
+        assertThat(bucketRegistry.reload()).extracting(Bucket::getName).containsExactly("backup", "images");
+        assertThat(listCalls.get()).isEqualTo(2);
+    }
+
+    /**
+     * test bucket created or dropped while loading is not overwritten by the listing
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testChangeWhileLoading() throws Exception {
+        onList = () -> {
+            Bucket created = new Bucket("logs");
+            created.setRegion("cn-hangzhou");
+            bucketRegistry.add(created);
+            bucketRegistry.remove("images");
+        };
+        assertThat(bucketRegistry.getBuckets()).extracting(Bucket::getName).containsExactly("backup", "logs");
+        assertThat(bucketRegistry.getBucket("logs").getRegion()).isEqualTo("cn-hangzhou");
+    }
+}
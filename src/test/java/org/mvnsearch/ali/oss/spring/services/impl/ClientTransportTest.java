@@ -0,0 +1,79 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.common.comm.DefaultServiceClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * client transport test
+ *
+ * @author linux_china
+ */
+public class ClientTransportTest {
+    /**
+     * temp home directory
+     */
+    @TempDir
+    File tempDir;
+
+    /**
+     * test private SDK fields used for pool tuning resolve against the pinned aliyun-sdk-oss version,
+     * per-route limit, keep-alive and pool stats silently stop working otherwise
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testSdkInternals() throws Exception {
+        assertThat(OSSClient.class.getDeclaredField("serviceClient").getType()).isAssignableFrom(DefaultServiceClient.class);
+        assertThat(DefaultServiceClient.class.getDeclaredField("connectionManager").getType())
+                .isAssignableFrom(PoolingHttpClientConnectionManager.class);
+        Files.write(new File(tempDir, ".aliyunoss.cfg").toPath(), "MAX_CONNECTIONS=32\nMAX_CONNECTIONS_PER_ROUTE=8\n".getBytes(StandardCharsets.UTF_8));
+        ConfigServiceImpl configService = new ConfigServiceImpl(tempDir);
+        configService.init();
+        OSSClient oss = new OSSClient("oss-cn-hangzhou.aliyuncs.com", new DefaultCredentialProvider("id", "key"),
+                ClientTransport.createConfiguration(configService));
+        try {
+            PoolingHttpClientConnectionManager connectionManager = ClientTransport.getConnectionManager(oss);
+            assertThat(connectionManager).isNotNull();
+            ClientTransport.tune(oss, configService);
+            assertThat(connectionManager.getMaxTotal()).isEqualTo(32);
+            assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(8);
+            assertThat(connectionManager.getDefaultSocketConfig().isSoKeepAlive()).isTrue();
+        } finally {
+            oss.shutdown();
+        }
+    }
+
+    /**
+     * test client configuration is applied and pool stats are reachable
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testPoolStats() throws Exception {
+        Files.write(new File(tempDir, ".aliyunoss.cfg").toPath(), "MAX_CONNECTIONS=16\nSOCKET_TIMEOUT=5\n".getBytes(StandardCharsets.UTF_8));
+        ConfigServiceImpl configService = new ConfigServiceImpl(tempDir);
+        configService.init();
+        OSSClient oss = new OSSClient("oss-cn-hangzhou.aliyuncs.com", new DefaultCredentialProvider("id", "key"),
+                ClientTransport.createConfiguration(configService));
+        try {
+            assertThat(oss.getClientConfiguration().getMaxConnections()).isEqualTo(16);
+            assertThat(oss.getClientConfiguration().getSocketTimeout()).isEqualTo(5000);
+            ClientTransport.tune(oss, configService);
+            assertThat(ClientTransport.isIdle(oss)).isTrue();
+            assertThat(ClientTransport.getPoolStats(oss)).containsKey("total");
+            assertThat(ClientTransport.getPoolStats(oss).get("total").getLeased()).isZero();
+        } finally {
+            oss.shutdown();
+        }
+    }
+}
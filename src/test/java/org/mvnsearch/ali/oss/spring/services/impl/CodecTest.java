@@ -0,0 +1,129 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.Codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * codec test
+ *
+ * @author linux_china
+ */
+public class CodecTest {
+    /**
+     * temp home directory, without configuration file
+     */
+    @TempDir
+    File tempDir;
+    /**
+     * plain content
+     */
+    private final byte[] content = "<html><body>hello oss</body></html>\n".repeat(50_000).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * test gzip round trip
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testGzip() throws Exception {
+        assertRoundTrip(new GzipCodec(6, 8192, 64 * 1024, 4));
+    }
+
+    /**
+     * test zstd round trip
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testZstd() throws Exception {
+        assertRoundTrip(new ZstdCodec(3, 8192));
+    }
+
+    /**
+     * test brotli round trip
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testBrotli() throws Exception {
+        assertRoundTrip(new BrotliCodec(5, 8192));
+    }
+
+    /**
+     * test br is registered only if brotli native library is available
+     */
+    @Test
+    public void testRegistry() {
+        CodecRegistryImpl codecRegistry = new CodecRegistryImpl();
+        ConfigServiceImpl configService = new ConfigServiceImpl(tempDir);
+        configService.init();
+        codecRegistry.setConfigService(configService);
+        codecRegistry.init();
+        assertThat(codecRegistry.getNames()).contains("gzip", "zstd");
+        assertThat(codecRegistry.getCodec("BR") != null).isEqualTo(Brotli4jLoader.isAvailable());
+    }
+
+    /**
+     * test read failure of plain content fails the encoded stream instead of ending it cleanly
+     */
+    @Test
+    public void testEncodeFailure() {
+        assertEncodeFailure(new ZstdCodec(3, 8192));
+        if (Brotli4jLoader.isAvailable()) {
+            assertEncodeFailure(new BrotliCodec(5, 8192));
+        }
+    }
+
+    /**
+     * encode content which fails half way
+     *
+     * @param codec codec
+     */
+    private void assertEncodeFailure(Codec codec) {
+        InputStream plainInput = new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position == content.length / 2) {
+                    throw new IOException("disk read failure");
+                }
+                return content[position++] & 0xFF;
+            }
+        };
+        assertThatThrownBy(() -> {
+            try (InputStream input = codec.encode(plainInput, content.length)) {
+                IOUtils.toByteArray(input);
+            }
+        }).isInstanceOf(IOException.class).hasMessageContaining("disk read failure");
+    }
+
+    /**
+     * encode and decode content with codec
+     *
+     * @param codec codec
+     * @throws Exception exception
+     */
+    private void assertRoundTrip(Codec codec) throws Exception {
+        byte[] encoded;
+        try (InputStream input = codec.encode(new ByteArrayInputStream(content), content.length)) {
+            encoded = IOUtils.toByteArray(input);
+        }
+        assertThat(encoded.length).isLessThan(content.length / 10);
+        try (InputStream input = codec.decode(new ByteArrayInputStream(encoded))) {
+            assertThat(IOUtils.toByteArray(input)).isEqualTo(content);
+        }
+    }
+}
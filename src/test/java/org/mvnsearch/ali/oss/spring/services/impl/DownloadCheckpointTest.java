@@ -0,0 +1,93 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * download checkpoint test
+ *
+ * @author linux_china
+ */
+public class DownloadCheckpointTest {
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+
+    /**
+     * test completed chunks are restored after load
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testResume() throws Exception {
+        File partFile = new File(tempDir, "demo.bin.part");
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(partFile);
+        checkpoint.start(createMetadata("etag1", 1000L), 100);
+        for (int index : new int[]{0, 1, 2, 5, 9}) {
+            checkpoint.complete(index);
+        }
+        DownloadCheckpoint loaded = new DownloadCheckpoint(partFile);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.isValidFor(createMetadata("etag1", 1000L), 100)).isTrue();
+        for (int index = 0; index < 10; index++) {
+            assertThat(loaded.isCompleted(index)).isEqualTo(index <= 2 || index == 5 || index == 9);
+        }
+        loaded.delete();
+        assertThat(new DownloadCheckpoint(partFile).load()).isFalse();
+    }
+
+    /**
+     * test checkpoint is invalid if object or chunk size changed
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testValidate() throws Exception {
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(new File(tempDir, "demo.bin.part"));
+        checkpoint.start(createMetadata("etag1", 1000L), 100);
+        assertThat(checkpoint.isValidFor(createMetadata("etag2", 1000L), 100)).isFalse();
+        assertThat(checkpoint.isValidFor(createMetadata("etag1", 2000L), 100)).isFalse();
+        assertThat(checkpoint.isValidFor(createMetadata("etag1", 1000L), 200)).isFalse();
+        ObjectMetadata modified = createMetadata("etag1", 1000L);
+        modified.setLastModified(new Date(2000));
+        assertThat(checkpoint.isValidFor(modified, 100)).isFalse();
+    }
+
+    /**
+     * test broken checkpoint file is ignored
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testBroken() throws Exception {
+        File partFile = new File(tempDir, "demo.bin.part");
+        Files.write(new File(tempDir, partFile.getName() + DownloadCheckpoint.SUFFIX).toPath(), "etag=1\nchunks=x".getBytes(StandardCharsets.UTF_8));
+        assertThat(new DownloadCheckpoint(partFile).load()).isFalse();
+    }
+
+    /**
+     * create object metadata
+     *
+     * @param etag       ETag
+     * @param objectSize object size
+     * @return object metadata
+     */
+    private static ObjectMetadata createMetadata(String etag, long objectSize) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setHeader(OSSHeaders.ETAG, etag);
+        objectMetadata.setContentLength(objectSize);
+        objectMetadata.setLastModified(new Date(1000));
+        return objectMetadata;
+    }
+}
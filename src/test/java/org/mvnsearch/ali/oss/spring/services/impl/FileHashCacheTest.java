@@ -0,0 +1,89 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.FileHashes;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * file hash cache test
+ *
+ * @author linux_china
+ */
+public class FileHashCacheTest {
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+
+    /**
+     * test hashes and verified ETag survive save and load, and are dropped after file changed
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testPersist() throws Exception {
+        File cacheFile = new File(tempDir, "cache/.oss-hash-cache");
+        File file = createFile("demo.txt", "hello oss");
+        FileHashCache hashCache = new FileHashCache(cacheFile);
+        FileHashes fileHashes = hashCache.getHashes(file);
+        assertThat(fileHashes.getMd5Hex()).isEqualTo(FileHashes.of(file).getMd5Hex());
+        hashCache.setVerifiedETag(file, "ABC-2");
+        hashCache.save();
+        FileHashCache loaded = new FileHashCache(cacheFile);
+        loaded.load();
+        assertThat(loaded.getHashes(file).getCrc64()).isEqualTo(fileHashes.getCrc64());
+        assertThat(loaded.getVerifiedETag(file)).isEqualTo("ABC-2");
+        Files.write(file.toPath(), "hello oss!".getBytes(StandardCharsets.UTF_8));
+        assertThat(loaded.getHashes(file).getMd5Hex()).isEqualTo(FileHashes.of(file).getMd5Hex());
+        assertThat(loaded.getVerifiedETag(file)).isNull();
+    }
+
+    /**
+     * test entries of files not seen in walk are pruned, entries out of walked directory are kept
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testPrune() throws Exception {
+        File dir = new File(tempDir, "src");
+        File kept = createFile("src/kept.txt", "kept");
+        File deleted = createFile("src/deleted.txt", "deleted");
+        File outside = createFile("other.txt", "other");
+        File cacheFile = new File(tempDir, ".oss-hash-cache");
+        FileHashCache hashCache = new FileHashCache(cacheFile);
+        for (File file : new File[]{kept, deleted, outside}) {
+            hashCache.getHashes(file);
+            hashCache.setVerifiedETag(file, "ABC-2");
+        }
+        hashCache.save();
+        FileHashCache loaded = new FileHashCache(cacheFile);
+        loaded.load();
+        loaded.markSeen(kept);
+        loaded.prune(dir);
+        assertThat(loaded.getVerifiedETag(kept)).isEqualTo("ABC-2");
+        assertThat(loaded.getVerifiedETag(deleted)).isNull();
+        assertThat(loaded.getVerifiedETag(outside)).isEqualTo("ABC-2");
+    }
+
+    /**
+     * create file with content
+     *
+     * @param path    relative path
+     * @param content content
+     * @return file
+     * @throws Exception exception
+     */
+    private File createFile(String path, String content) throws Exception {
+        File file = new File(tempDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,156 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * listing cache test with stub listing service
+ *
+ * @author linux_china
+ */
+public class ListingCacheImplTest {
+    /**
+     * temp home directory, without configuration file
+     */
+    @TempDir
+    File tempDir;
+    /**
+     * listed prefixes
+     */
+    private final List<String> listedPrefixes = new CopyOnWriteArrayList<>();
+    /**
+     * action run while listing, such as concurrent mutation
+     */
+    private Runnable onList = () -> {
+    };
+    /**
+     * listing cache
+     */
+    private ListingCacheImpl listingCache;
+
+    /**
+     * setup listing cache with stub service, TTL is 1 second
+     *
+     * @throws Exception exception
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        Files.write(new File(tempDir, ".aliyunoss.cfg").toPath(), "LISTING_CACHE_TTL=1\n".getBytes(StandardCharsets.UTF_8));
+        AliyunOssService aliyunOssService = (AliyunOssService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AliyunOssService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("listChildrenByPrefix")) {
+                        String prefix = (String) args[1];
+                        listedPrefixes.add(prefix);
+                        onList.run();
+                        return createListing((String) args[0], prefix);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        listingCache = new ListingCacheImpl();
+        listingCache.setAliyunOssService(aliyunOssService);
+        ConfigServiceImpl configService = new ConfigServiceImpl(tempDir);
+        configService.init();
+        listingCache.setConfigService(configService);
+        listingCache.init();
+    }
+
+    /**
+     * test narrower prefix is answered from cached directory listing
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testNarrowFromDirectory() throws Exception {
+        assertThat(listingCache.getListing("bucket", "logs/", false).getObjectSummaries()).hasSize(2);
+        ObjectListing listing = listingCache.getListing("bucket", "logs/ap", true);
+        assertThat(listing.getObjectSummaries()).extracting(OSSObjectSummary::getKey).containsExactly("logs/app.log");
+        assertThat(listing.getCommonPrefixes()).containsExactly("logs/app/");
+        assertThat(listedPrefixes).containsExactly("logs/");
+    }
+
+    /**
+     * test mutation invalidates cached listing of ancestors
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        listingCache.getListing("bucket", "logs/", false);
+        listingCache.getListing("bucket", "other/", false);
+        listingCache.invalidate("bucket", "logs/app.log");
+        listingCache.getListing("bucket", "logs/", false);
+        listingCache.getListing("bucket", "other/", false);
+        assertThat(listedPrefixes).containsExactly("logs/", "other/", "logs/");
+    }
+
+    /**
+     * test stale listing is served to completion only
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testStale() throws Exception {
+        ObjectListing listing = listingCache.getListing("bucket", "logs/", false);
+        Thread.sleep(1100);
+        assertThat(listingCache.getListing("bucket", "logs/", true)).isSameAs(listing);
+        assertThat(listingCache.getListing("bucket", "logs/", false)).isNotSameAs(listing);
+        assertThat(listedPrefixes).contains("logs/").hasSizeBetween(2, 3);
+    }
+
+    /**
+     * test listing loaded before concurrent invalidation is not cached
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testInvalidateWhileLoading() throws Exception {
+        onList = () -> listingCache.invalidate("bucket", "logs/new.log");
+        listingCache.getListing("bucket", "logs/", false);
+        onList = () -> {
+        };
+        listingCache.getListing("bucket", "logs/", false);
+        listingCache.getListing("bucket", "logs/", false);
+        assertThat(listedPrefixes).containsExactly("logs/", "logs/");
+    }
+
+    /**
+     * create listing of fixed directory content
+     *
+     * @param bucketName bucket name
+     * @param prefix     prefix
+     * @return listing
+     */
+    private static ObjectListing createListing(String bucketName, String prefix) {
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName(bucketName);
+        listing.setPrefix(prefix);
+        listing.setDelimiter("/");
+        for (String key : new String[]{"logs/app.log", "logs/web.log"}) {
+            if (key.startsWith(prefix)) {
+                OSSObjectSummary objectSummary = new OSSObjectSummary();
+                objectSummary.setBucketName(bucketName);
+                objectSummary.setKey(key);
+                listing.addObjectSummary(objectSummary);
+            }
+        }
+        for (String commonPrefix : new String[]{"logs/app/", "logs/web/"}) {
+            if (commonPrefix.startsWith(prefix)) {
+                listing.addCommonPrefix(commonPrefix);
+            }
+        }
+        return listing;
+    }
+}
@@ -0,0 +1,89 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * multipart copier test
+ *
+ * @author linux_china
+ */
+public class MultipartCopierTest {
+    /**
+     * oss client stub
+     */
+    private StubOssClient oss;
+    /**
+     * source content
+     */
+    private byte[] content;
+    /**
+     * source object uri
+     */
+    private final OSSUri sourceUri = new OSSUri("bucket", "source.bin");
+    /**
+     * dest object uri
+     */
+    private final OSSUri destUri = new OSSUri("bucket", "dest.bin");
+
+    /**
+     * create source object
+     */
+    @BeforeEach
+    public void setUp() {
+        oss = new StubOssClient();
+        content = new byte[10500];
+        new Random(1).nextBytes(content);
+        oss.addObject(sourceUri.getFilePath(), content);
+    }
+
+    /**
+     * test parts cover the whole object with a short last part
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testCopy() throws Exception {
+        new MultipartCopier(oss, 1000, 4).copy(sourceUri, destUri, new ObjectMetadata(), content.length, oss.getETag(sourceUri.getFilePath()));
+        assertThat(oss.uploadedParts.get()).isEqualTo(11);
+        assertThat(oss.objects.get(destUri.getFilePath())).isEqualTo(content);
+        assertThat(oss.uploads).isEmpty();
+    }
+
+    /**
+     * test part size is raised to keep part count under MAX_PARTS
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testMaxParts() throws Exception {
+        content = new byte[MultipartUploader.MAX_PARTS * 2 + 1];
+        new Random(2).nextBytes(content);
+        oss.addObject(sourceUri.getFilePath(), content);
+        new MultipartCopier(oss, 1, 8).copy(sourceUri, destUri, new ObjectMetadata(), content.length, null);
+        assertThat(oss.uploadedParts.get()).isEqualTo(MultipartUploader.MAX_PARTS / 3 * 2 + 1);
+        assertThat(oss.uploadedParts.get()).isLessThanOrEqualTo(MultipartUploader.MAX_PARTS);
+        assertThat(oss.objects.get(destUri.getFilePath())).isEqualTo(content);
+    }
+
+    /**
+     * test changed source fails the copy and aborts the upload
+     */
+    @Test
+    public void testSourceChanged() {
+        MultipartCopier copier = new MultipartCopier(oss, 1000, 4);
+        assertThatThrownBy(() -> copier.copy(sourceUri, destUri, new ObjectMetadata(), content.length, "0F343B0931126A20F133D67C2B018A3B"))
+                .isInstanceOf(OSSException.class)
+                .hasMessageContaining("Precondition failed");
+        assertThat(oss.objects).doesNotContainKey(destUri.getFilePath());
+        assertThat(oss.uploads).isEmpty();
+    }
+}
@@ -0,0 +1,163 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.services.TransferOptions;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * multipart uploader test
+ *
+ * @author linux_china
+ */
+public class MultipartUploaderTest {
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+    /**
+     * oss client stub
+     */
+    private StubOssClient oss;
+    /**
+     * checkpoint directory
+     */
+    private File checkpointDir;
+    /**
+     * source file, 3.5 parts of 100K
+     */
+    private File sourceFile;
+    /**
+     * source content
+     */
+    private byte[] content;
+
+    /**
+     * create source file
+     *
+     * @throws Exception exception
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        oss = new StubOssClient();
+        checkpointDir = new File(tempDir, "checkpoints");
+        content = new byte[(int) (MultipartUploader.MIN_PART_SIZE * 7 / 2)];
+        new Random(1).nextBytes(content);
+        sourceFile = new File(tempDir, "demo.bin");
+        Files.write(sourceFile.toPath(), content);
+    }
+
+    /**
+     * test part size is at least MIN_PART_SIZE and part count is under MAX_PARTS
+     */
+    @Test
+    public void testPartSize() {
+        MultipartUploader uploader = new MultipartUploader(oss, 1024 * 1024L, checkpointDir);
+        assertThat(uploader.getPartSize(10 * 1024 * 1024L)).isEqualTo(1024 * 1024L);
+        assertThat(new MultipartUploader(oss, 1024L, checkpointDir).getPartSize(1000L)).isEqualTo(MultipartUploader.MIN_PART_SIZE);
+        long fileLength = 100L * 1024 * 1024 * 1024 + 1;
+        long partSize = uploader.getPartSize(fileLength);
+        assertThat(partSize).isGreaterThan(1024 * 1024L);
+        assertThat((fileLength + partSize - 1) / partSize).isLessThanOrEqualTo(MultipartUploader.MAX_PARTS);
+        assertThat((fileLength + partSize - 2) / (partSize - 1)).isGreaterThan(MultipartUploader.MAX_PARTS);
+    }
+
+    /**
+     * test positional read of last partial part and EOF
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testReadFully() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+            MultipartUploader.readFully(channel, buffer, content.length - 500, 500);
+            assertThat(buffer.position()).isEqualTo(500);
+            assertThat(Arrays.copyOf(buffer.array(), 500)).isEqualTo(Arrays.copyOfRange(content, content.length - 500, content.length));
+            assertThatThrownBy(() -> MultipartUploader.readFully(channel, buffer, content.length - 500, 501))
+                    .isInstanceOf(EOFException.class);
+        }
+    }
+
+    /**
+     * test parts uploaded concurrently and completed in order
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testUpload() throws Exception {
+        MultipartUploader uploader = new MultipartUploader(oss, MultipartUploader.MIN_PART_SIZE, checkpointDir);
+        uploader.upload(sourceFile, new OSSUri("oss://demo/demo.bin"), new ObjectMetadata(), new TransferOptions(false, 3));
+        assertThat(oss.objects.get("demo.bin")).isEqualTo(content);
+        assertThat(oss.uploadedParts.get()).isEqualTo(4);
+        assertThat(oss.uploads).isEmpty();
+        assertThat(checkpointDir.list()).isEmpty();
+    }
+
+    /**
+     * test upload aborted and checkpoint removed if failed without resume
+     */
+    @Test
+    public void testAbortOnFailure() {
+        oss.failPart = 2;
+        MultipartUploader uploader = new MultipartUploader(oss, MultipartUploader.MIN_PART_SIZE, checkpointDir);
+        assertThatThrownBy(() -> uploader.upload(sourceFile, new OSSUri("oss://demo/demo.bin"), new ObjectMetadata(), new TransferOptions(false, 1)))
+                .isInstanceOf(OSSException.class);
+        assertThat(oss.uploads).isEmpty();
+        assertThat(checkpointDir.list()).isEmpty();
+    }
+
+    /**
+     * test upload kept if failed with resume, and only missing parts uploaded in next run
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testResume() throws Exception {
+        oss.failPart = 2;
+        MultipartUploader uploader = new MultipartUploader(oss, MultipartUploader.MIN_PART_SIZE, checkpointDir);
+        TransferOptions options = new TransferOptions(false, 1);
+        options.setResume(true);
+        OSSUri destObject = new OSSUri("oss://demo/demo.bin");
+        assertThatThrownBy(() -> uploader.upload(sourceFile, destObject, new ObjectMetadata(), options))
+                .isInstanceOf(OSSException.class);
+        assertThat(oss.uploads).hasSize(1);
+        assertThat(checkpointDir.list()).hasSize(1);
+        oss.failPart = 0;
+        uploader.upload(sourceFile, destObject, new ObjectMetadata(), options);
+        assertThat(oss.objects.get("demo.bin")).isEqualTo(content);
+        assertThat(oss.uploadedParts.get()).isEqualTo(4);
+        assertThat(checkpointDir.list()).isEmpty();
+    }
+
+    /**
+     * test stream of unknown length uploaded in parts
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testUploadStream() throws Exception {
+        MultipartUploader uploader = new MultipartUploader(oss, MultipartUploader.MIN_PART_SIZE, checkpointDir);
+        long length = uploader.upload(new ByteArrayInputStream(content), new OSSUri("oss://demo/demo.bin"), new ObjectMetadata(), 2);
+        assertThat(length).isEqualTo(content.length);
+        assertThat(oss.objects.get("demo.bin")).isEqualTo(content);
+        assertThat(oss.uploadedParts.get()).isEqualTo(4);
+    }
+}
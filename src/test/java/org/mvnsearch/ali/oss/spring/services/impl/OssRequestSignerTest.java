@@ -0,0 +1,120 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.common.auth.DefaultCredentials;
+import com.aliyun.oss.common.comm.RequestMessage;
+import com.aliyun.oss.common.comm.SignVersion;
+import com.aliyun.oss.internal.signer.OSSSignerBase;
+import com.aliyun.oss.internal.signer.OSSSignerParams;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * request signer test, signatures are compared with SDK signers
+ *
+ * @author linux_china
+ */
+public class OssRequestSignerTest {
+    /**
+     * resource path with characters to be encoded
+     */
+    private static final String RESOURCE_PATH = "/my-bucket/dir/a b+c*~.txt";
+
+    /**
+     * test V1 signature
+     */
+    @Test
+    public void testSignV1() {
+        RequestMessage request = createRequest(false);
+        sign(SignVersion.V1, request);
+        Instant now = ZonedDateTime.parse(request.getHeaders().get("Date"), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        assertThat(signWith(OssRequestSigner.V1, now)).isEqualTo(request.getHeaders().get("Authorization"));
+    }
+
+    /**
+     * test V4 signature
+     */
+    @Test
+    public void testSignV4() {
+        RequestMessage request = createRequest(true);
+        sign(SignVersion.V4, request);
+        Instant now = LocalDateTime.parse(request.getHeaders().get("x-oss-date"), DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")).toInstant(ZoneOffset.UTC);
+        assertThat(signWith(OssRequestSigner.V4, now)).isEqualTo(request.getHeaders().get("Authorization"));
+    }
+
+    /**
+     * sign with request signer
+     *
+     * @param version signature version
+     * @param now     request time
+     * @return authorization header
+     */
+    private static String signWith(String version, Instant now) {
+        Map<String, String> headers = createHeaders();
+        new OssRequestSigner("id", "secret", version, "cn-hangzhou").sign("PUT", RESOURCE_PATH, createParameters(), headers, now);
+        return headers.get("Authorization");
+    }
+
+    /**
+     * sign with SDK signer
+     *
+     * @param version signature version
+     * @param request request
+     */
+    private static void sign(SignVersion version, RequestMessage request) {
+        OSSSignerParams params = new OSSSignerParams(RESOURCE_PATH, new DefaultCredentials("id", "secret"));
+        params.setProduct("oss");
+        params.setRegion("cn-hangzhou");
+        OSSSignerBase.createRequestSigner(version, params).sign(request);
+    }
+
+    /**
+     * create SDK request
+     *
+     * @param withParameters V1 signs sub resources only, so parameters are omitted
+     * @return request
+     */
+    private static RequestMessage createRequest(boolean withParameters) {
+        RequestMessage request = new RequestMessage("my-bucket", "dir/a b+c*~.txt");
+        request.setMethod(HttpMethod.PUT);
+        if (withParameters) {
+            request.setParameters(createParameters());
+        }
+        createHeaders().forEach(request::addHeader);
+        return request;
+    }
+
+    /**
+     * create query parameters
+     *
+     * @return parameters
+     */
+    private static Map<String, String> createParameters() {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("prefix", "x/y z");
+        parameters.put("max-keys", "10");
+        parameters.put("acl", "");
+        return parameters;
+    }
+
+    /**
+     * create request headers
+     *
+     * @return headers
+     */
+    private static Map<String, String> createHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "text/plain");
+        headers.put("x-oss-meta-Author", " foo ");
+        return headers;
+    }
+}
@@ -0,0 +1,132 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.services.TransferOptions;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ranged downloader test
+ *
+ * @author linux_china
+ */
+public class RangeDownloaderTest {
+    /**
+     * chunk size
+     */
+    private static final long CHUNK_SIZE = 1000;
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+    /**
+     * oss client stub
+     */
+    private StubOssClient oss;
+    /**
+     * object content, 10.5 chunks
+     */
+    private byte[] content;
+    /**
+     * dest file
+     */
+    private File destFile;
+
+    /**
+     * create remote object
+     */
+    @BeforeEach
+    public void setUp() {
+        oss = new StubOssClient();
+        content = new byte[(int) (CHUNK_SIZE * 10 + CHUNK_SIZE / 2)];
+        new Random(1).nextBytes(content);
+        oss.addObject("demo.bin", content);
+        destFile = new File(tempDir, "demo.bin");
+    }
+
+    /**
+     * test chunks are downloaded concurrently into part file which replaces dest file
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testDownload() throws Exception {
+        Files.write(destFile.toPath(), new byte[]{1, 2, 3});
+        new RangeDownloader(oss, CHUNK_SIZE).download(new OSSUri("oss://demo/demo.bin"), createMetadata(), destFile, new TransferOptions(false, 4));
+        assertThat(Files.readAllBytes(destFile.toPath())).isEqualTo(content);
+        assertThat(oss.getRequests.get()).isEqualTo(11);
+        assertThat(tempDir.list()).containsExactly("demo.bin");
+    }
+
+    /**
+     * test dest file is kept and completed chunks are not downloaded again after failure with resume
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testResume() throws Exception {
+        Files.write(destFile.toPath(), new byte[]{1, 2, 3});
+        RangeDownloader downloader = new RangeDownloader(oss, CHUNK_SIZE);
+        TransferOptions options = new TransferOptions(false, 1);
+        options.setResume(true);
+        oss.failRangeStart = CHUNK_SIZE * 3;
+        assertThatThrownBy(() -> downloader.download(new OSSUri("oss://demo/demo.bin"), createMetadata(), destFile, options))
+                .isInstanceOf(OSSException.class);
+        assertThat(Files.readAllBytes(destFile.toPath())).containsExactly(1, 2, 3);
+        assertThat(RangeDownloader.getPartFile(destFile)).exists();
+        oss.failRangeStart = -1;
+        oss.getRequests.set(0);
+        downloader.download(new OSSUri("oss://demo/demo.bin"), createMetadata(), destFile, options);
+        assertThat(Files.readAllBytes(destFile.toPath())).isEqualTo(content);
+        assertThat(oss.getRequests.get()).isEqualTo(8);
+        assertThat(tempDir.list()).containsExactly("demo.bin");
+    }
+
+    /**
+     * test download starts over if object changed since checkpoint
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testObjectChanged() throws Exception {
+        RangeDownloader downloader = new RangeDownloader(oss, CHUNK_SIZE);
+        TransferOptions options = new TransferOptions(false, 1);
+        options.setResume(true);
+        oss.failRangeStart = CHUNK_SIZE * 3;
+        assertThatThrownBy(() -> downloader.download(new OSSUri("oss://demo/demo.bin"), createMetadata(), destFile, options))
+                .isInstanceOf(OSSException.class);
+        content[0]++;
+        oss.addObject("demo.bin", content);
+        oss.failRangeStart = -1;
+        oss.getRequests.set(0);
+        downloader.download(new OSSUri("oss://demo/demo.bin"), createMetadata(), destFile, options);
+        assertThat(Files.readAllBytes(destFile.toPath())).isEqualTo(content);
+        assertThat(oss.getRequests.get()).isEqualTo(11);
+    }
+
+    /**
+     * create metadata of remote object
+     *
+     * @return object metadata
+     */
+    private ObjectMetadata createMetadata() {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(content.length);
+        objectMetadata.setLastModified(new Date(1700000000000L));
+        objectMetadata.setHeader(OSSHeaders.ETAG, oss.getETag("demo.bin"));
+        return objectMetadata;
+    }
+}
@@ -0,0 +1,80 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * sharded lister test with stub client
+ *
+ * @author linux_china
+ */
+public class ShardedListerTest {
+    /**
+     * stub client
+     */
+    private StubOssClient oss;
+
+    /**
+     * setup objects: top objects around shards, and one shard with several pages
+     */
+    @BeforeEach
+    public void setUp() {
+        oss = new StubOssClient();
+        oss.addObject("logs/a.txt", new byte[1]);
+        for (int i = 0; i < 2500; i++) {
+            oss.addObject(String.format("logs/b/%05d", i), new byte[1]);
+        }
+        oss.addObject("logs/b.txt", new byte[1]);
+        oss.addObject("logs/c/1", new byte[1]);
+        oss.addObject("logs/c/d/2", new byte[1]);
+        oss.addObject("logs/d.txt", new byte[1]);
+        oss.addObject("other/e.txt", new byte[1]);
+    }
+
+    /**
+     * test ordered listing emits all keys in key order
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testOrdered() throws Exception {
+        List<String> keys = new ArrayList<>();
+        new ShardedLister(oss, 2).list("bucket", "logs/", true, objectSummary -> keys.add(objectSummary.getKey()));
+        assertThat(keys).hasSize(2505).isSorted();
+        assertThat(keys.get(0)).isEqualTo("logs/a.txt");
+        assertThat(keys.get(keys.size() - 1)).isEqualTo("logs/d.txt");
+    }
+
+    /**
+     * test unordered listing emits all keys
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testUnordered() throws Exception {
+        Queue<String> keys = new ConcurrentLinkedQueue<>();
+        new ShardedLister(oss, 4).list("bucket", "logs/", false, objectSummary -> keys.add(objectSummary.getKey()));
+        assertThat(keys).hasSize(2505).doesNotHaveDuplicates().doesNotContain("other/e.txt");
+    }
+
+    /**
+     * test objects and common prefixes of a page are merged in key order
+     */
+    @Test
+    public void testMergeByKey() {
+        OSSObjectSummary first = new OSSObjectSummary();
+        first.setKey("a");
+        OSSObjectSummary second = new OSSObjectSummary();
+        second.setKey("c");
+        List<Object> entries = ShardedLister.mergeByKey(List.of(first, second), List.of("a/", "b/", "d/"));
+        assertThat(entries).containsExactly(first, "a/", "b/", second, "d/");
+    }
+}
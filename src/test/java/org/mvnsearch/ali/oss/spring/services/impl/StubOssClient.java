@@ -0,0 +1,305 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.model.*;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * in-memory oss client stub for engine tests, no request is sent
+ *
+ * @author linux_china
+ */
+public class StubOssClient extends OSSClient {
+    /**
+     * objects by key
+     */
+    protected final ConcurrentSkipListMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+    /**
+     * list requests
+     */
+    protected final AtomicInteger listRequests = new AtomicInteger();
+    /**
+     * multipart uploads in progress: upload id -> part number -> content
+     */
+    protected final Map<String, ConcurrentSkipListMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    /**
+     * uploaded part count
+     */
+    protected final AtomicInteger uploadedParts = new AtomicInteger();
+    /**
+     * part number to reject with AccessDenied, 0 for none
+     */
+    protected volatile int failPart;
+    /**
+     * get object requests
+     */
+    protected final AtomicInteger getRequests = new AtomicInteger();
+    /**
+     * range start to reject with AccessDenied, -1 for none
+     */
+    protected volatile long failRangeStart = -1;
+
+    /**
+     * construct method
+     */
+    public StubOssClient() {
+        super("oss-cn-hangzhou.aliyuncs.com", new DefaultCredentialProvider("id", "key"), null);
+    }
+
+    /**
+     * add object
+     *
+     * @param key     key
+     * @param content content
+     */
+    public void addObject(String key, byte[] content) {
+        objects.put(key, content);
+    }
+
+    /**
+     * list objects with prefix, marker, delimiter and max keys
+     *
+     * @param request request
+     * @return object listing
+     */
+    @Override
+    public ObjectListing listObjects(ListObjectsRequest request) {
+        listRequests.incrementAndGet();
+        String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        String marker = request.getMarker();
+        String delimiter = request.getDelimiter();
+        int maxKeys = request.getMaxKeys() == null ? 100 : request.getMaxKeys();
+        ObjectListing listing = new ObjectListing();
+        listing.setBucketName(request.getBucketName());
+        listing.setPrefix(prefix);
+        listing.setMarker(marker);
+        listing.setDelimiter(delimiter);
+        listing.setMaxKeys(maxKeys);
+        int count = 0;
+        String last = null;
+        Map<String, byte[]> tail = marker == null || marker.isEmpty() ? objects : objects.tailMap(marker, false);
+        for (Map.Entry<String, byte[]> entry : tail.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                if (key.compareTo(prefix) > 0) {
+                    break;
+                }
+                continue;
+            }
+            //keys rolled up into the previous common prefix
+            if (last != null && last.endsWith("/") && delimiter != null && key.startsWith(last)) {
+                continue;
+            }
+            if (marker != null && delimiter != null && marker.endsWith(delimiter) && key.startsWith(marker)) {
+                continue;
+            }
+            if (count == maxKeys) {
+                listing.setTruncated(true);
+                listing.setNextMarker(last);
+                return listing;
+            }
+            int index = delimiter == null ? -1 : key.indexOf(delimiter, prefix.length());
+            if (index >= 0) {
+                last = key.substring(0, index + delimiter.length());
+                listing.addCommonPrefix(last);
+            } else {
+                last = key;
+                OSSObjectSummary objectSummary = new OSSObjectSummary();
+                objectSummary.setBucketName(request.getBucketName());
+                objectSummary.setKey(key);
+                objectSummary.setSize(entry.getValue().length);
+                listing.addObjectSummary(objectSummary);
+            }
+            count++;
+        }
+        return listing;
+    }
+
+    /**
+     * get ETag of object, which is MD5 of content as single put object
+     *
+     * @param key key
+     * @return ETag
+     */
+    public String getETag(String key) {
+        return DigestUtils.md5Hex(objects.get(key)).toUpperCase();
+    }
+
+    /**
+     * get object with range and matching ETag constraint
+     *
+     * @param request request
+     * @return oss object
+     */
+    @Override
+    public OSSObject getObject(GetObjectRequest request) {
+        getRequests.incrementAndGet();
+        byte[] content = objects.get(request.getKey());
+        if (content == null) {
+            throw new OSSException("The specified key does not exist", "NoSuchKey", null, null, null, null, null);
+        }
+        if (!request.getMatchingETagConstraints().isEmpty() && !request.getMatchingETagConstraints().contains(getETag(request.getKey()))) {
+            throw new OSSException("Precondition failed", "PreconditionFailed", null, null, null, null, null);
+        }
+        long[] range = request.getRange();
+        int start = range == null ? 0 : (int) range[0];
+        int end = range == null ? content.length - 1 : (int) Math.min(range[1], content.length - 1);
+        if (start == failRangeStart) {
+            throw new OSSException("Access denied", "AccessDenied", null, null, null, null, null);
+        }
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(request.getBucketName());
+        ossObject.setKey(request.getKey());
+        ossObject.setObjectContent(new ByteArrayInputStream(content, start, end - start + 1));
+        return ossObject;
+    }
+
+    /**
+     * initiate multipart upload
+     *
+     * @param request request
+     * @return result with new upload id
+     */
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    /**
+     * upload part, part number equals to failPart is rejected
+     *
+     * @param request request
+     * @return result with part ETag
+     */
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        if (request.getPartNumber() == failPart) {
+            throw new OSSException("Access denied", "AccessDenied", null, null, null, null, null);
+        }
+        byte[] content;
+        try {
+            content = IOUtils.toByteArray(request.getInputStream(), request.getPartSize());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        getUpload(request.getUploadId()).put(request.getPartNumber(), content);
+        uploadedParts.incrementAndGet();
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setPartSize(content.length);
+        result.setETag(Integer.toHexString(Arrays.hashCode(content)));
+        return result;
+    }
+
+    /**
+     * copy part from source object range with matching ETag constraint
+     *
+     * @param request request
+     * @return result with part ETag
+     */
+    @Override
+    public UploadPartCopyResult uploadPartCopy(UploadPartCopyRequest request) {
+        byte[] source = objects.get(request.getSourceKey());
+        if (source == null) {
+            throw new OSSException("The specified key does not exist", "NoSuchKey", null, null, null, null, null);
+        }
+        List<String> etags = request.getMatchingETagConstraints();
+        if (etags != null && !etags.isEmpty() && !etags.contains(getETag(request.getSourceKey()))) {
+            throw new OSSException("Precondition failed", "PreconditionFailed", null, null, null, null, null);
+        }
+        int start = request.getBeginIndex().intValue();
+        byte[] content = Arrays.copyOfRange(source, start, start + request.getPartSize().intValue());
+        getUpload(request.getUploadId()).put(request.getPartNumber(), content);
+        uploadedParts.incrementAndGet();
+        UploadPartCopyResult result = new UploadPartCopyResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(Integer.toHexString(Arrays.hashCode(content)));
+        return result;
+    }
+
+    /**
+     * list uploaded parts, all parts returned in one page
+     *
+     * @param request request
+     * @return part listing
+     */
+    @Override
+    public PartListing listParts(ListPartsRequest request) {
+        PartListing listing = new PartListing();
+        for (Map.Entry<Integer, byte[]> entry : getUpload(request.getUploadId()).entrySet()) {
+            PartSummary part = new PartSummary();
+            part.setPartNumber(entry.getKey());
+            part.setSize(entry.getValue().length);
+            part.setETag(Integer.toHexString(Arrays.hashCode(entry.getValue())));
+            listing.addPart(part);
+        }
+        listing.setTruncated(false);
+        return listing;
+    }
+
+    /**
+     * complete multipart upload, parts are concatenated in request order
+     *
+     * @param request request
+     * @return result
+     */
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Map<Integer, byte[]> parts = getUpload(request.getUploadId());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (PartETag partETag : request.getPartETags()) {
+            output.writeBytes(parts.get(partETag.getPartNumber()));
+        }
+        uploads.remove(request.getUploadId());
+        objects.put(request.getKey(), output.toByteArray());
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        return result;
+    }
+
+    /**
+     * abort multipart upload
+     *
+     * @param request request
+     */
+    @Override
+    public VoidResult abortMultipartUpload(AbortMultipartUploadRequest request) {
+        getUpload(request.getUploadId());
+        uploads.remove(request.getUploadId());
+        return new VoidResult();
+    }
+
+    /**
+     * get multipart upload in progress
+     *
+     * @param uploadId upload id
+     * @return parts
+     */
+    private ConcurrentSkipListMap<Integer, byte[]> getUpload(String uploadId) {
+        ConcurrentSkipListMap<Integer, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            throw new OSSException("The specified upload does not exist", "NoSuchUpload", null, null, null, null, null);
+        }
+        return parts;
+    }
+}
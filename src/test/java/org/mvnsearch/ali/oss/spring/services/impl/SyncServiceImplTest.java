@@ -0,0 +1,237 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.FileHashes;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.services.TransferOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * sync service test with stub service
+ *
+ * @author linux_china
+ */
+public class SyncServiceImplTest {
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+    /**
+     * remote objects
+     */
+    private final List<OSSObjectSummary> remoteObjects = new ArrayList<>();
+    /**
+     * uploaded object keys
+     */
+    private final List<String> uploadedKeys = new CopyOnWriteArrayList<>();
+    /**
+     * object metadata calls
+     */
+    private final AtomicInteger headCalls = new AtomicInteger();
+    /**
+     * CRC64 of remote multipart object
+     */
+    private long remoteCrc64;
+    /**
+     * object key to fail transfer, null for none
+     */
+    private String failKey;
+    /**
+     * source directory
+     */
+    private File sourceDir;
+    /**
+     * sync service
+     */
+    private SyncServiceImpl syncService;
+
+    /**
+     * setup sync service with stub service
+     *
+     * @throws Exception exception
+     */
+    @BeforeEach
+    public void setUp() throws Exception {
+        sourceDir = new File(tempDir, "src");
+        File same = createFile("src/same.txt", "same content");
+        File multipart = createFile("src/multipart.bin", "multipart content");
+        createFile("src/logs/changed.txt", "changed content");
+        createFile("src/new.txt", "new content");
+        createFile("src/.hidden", "hidden");
+        addRemoteObject("backup/same.txt", same.length(), FileHashes.of(same).getMd5Hex().toUpperCase());
+        addRemoteObject("backup/multipart.bin", multipart.length(), "0F343B0931126A20F133D67C2B018A3B-2");
+        addRemoteObject("backup/logs/changed.txt", "changed content".length(), "0F343B0931126A20F133D67C2B018A3B");
+        remoteCrc64 = FileHashes.of(multipart).getCrc64();
+        AliyunOssService aliyunOssService = (AliyunOssService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AliyunOssService.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "listAll":
+                            AliyunOssService.ObjectSummaryConsumer consumer = (AliyunOssService.ObjectSummaryConsumer) args[3];
+                            for (OSSObjectSummary objectSummary : remoteObjects) {
+                                if (objectSummary.getKey().startsWith((String) args[1])) {
+                                    consumer.accept(objectSummary);
+                                }
+                            }
+                            return null;
+                        case "getObjectMetadata":
+                            headCalls.incrementAndGet();
+                            ObjectMetadata objectMetadata = new ObjectMetadata();
+                            objectMetadata.setHeader(OSSHeaders.OSS_HASH_CRC64_ECMA, Long.toUnsignedString(remoteCrc64));
+                            return objectMetadata;
+                        case "get":
+                            if (((OSSUri) args[0]).getFilePath().equals(failKey)) {
+                                throw new IOException("download failure");
+                            }
+                            File destFile = new File((String) args[1]);
+                            Files.createDirectories(destFile.getParentFile().toPath());
+                            Files.write(destFile.toPath(), "remote".getBytes(StandardCharsets.UTF_8));
+                            return destFile.getAbsolutePath();
+                        case "put":
+                            String key = ((OSSUri) args[1]).getFilePath();
+                            if (key.equals(failKey)) {
+                                throw new IOException("upload failure");
+                            }
+                            uploadedKeys.add(key);
+                            return new ObjectMetadata();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        syncService = new SyncServiceImpl();
+        syncService.setAliyunOssService(aliyunOssService);
+        ConfigServiceImpl configService = new ConfigServiceImpl(tempDir);
+        configService.init();
+        syncService.setConfigService(configService);
+    }
+
+    /**
+     * test unchanged files are skipped with MD5 ETag and CRC64, and CRC64 is fetched once per multipart object
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testUploadWithChecksum() throws Exception {
+        TransferOptions options = new TransferOptions();
+        options.setChecksum(true);
+        options.setWorkers(2);
+        assertThat(syncService.uploadDirectory("demo", "backup", sourceDir, true, options)).isEqualTo(2);
+        assertThat(uploadedKeys).containsExactlyInAnyOrder("backup/logs/changed.txt", "backup/new.txt");
+        assertThat(headCalls.get()).isEqualTo(1);
+        uploadedKeys.clear();
+        syncService.uploadDirectory("demo", "backup", sourceDir, true, options);
+        assertThat(uploadedKeys).containsExactlyInAnyOrder("backup/logs/changed.txt", "backup/new.txt");
+        assertThat(headCalls.get()).isEqualTo(1);
+    }
+
+    /**
+     * test changed multipart object is uploaded again
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testMultipartChanged() throws Exception {
+        remoteCrc64 = remoteCrc64 + 1;
+        TransferOptions options = new TransferOptions();
+        options.setChecksum(true);
+        syncService.uploadDirectory("demo", "backup", sourceDir, true, options);
+        assertThat(uploadedKeys).contains("backup/multipart.bin").doesNotContain("backup/same.txt");
+    }
+
+    /**
+     * test all files except hidden ones are uploaded without sync
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testUploadAll() throws Exception {
+        syncService.uploadDirectory("demo", "backup/", sourceDir, false, new TransferOptions());
+        assertThat(uploadedKeys).containsExactlyInAnyOrder("backup/same.txt", "backup/multipart.bin",
+                "backup/logs/changed.txt", "backup/new.txt");
+        assertThat(headCalls.get()).isZero();
+    }
+
+    /**
+     * test download with delete keeps partial downloads and their checkpoints
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testDownloadDelete() throws Exception {
+        File destDir = new File(tempDir, "dest");
+        File stale = createFile("dest/stale.txt", "stale");
+        File partFile = createFile("dest/big.bin" + RangeDownloader.PART_SUFFIX, "partial");
+        File checkpointFile = createFile("dest/big.bin" + RangeDownloader.PART_SUFFIX + DownloadCheckpoint.SUFFIX, "checkpoint");
+        assertThat(syncService.downloadDirectory("demo", "backup", destDir, true, new TransferOptions())).isEqualTo(3);
+        assertThat(new File(destDir, "logs/changed.txt")).exists();
+        assertThat(stale).doesNotExist();
+        assertThat(partFile).exists();
+        assertThat(checkpointFile).exists();
+    }
+
+    /**
+     * test failed files are reported as failure instead of a plain count
+     */
+    @Test
+    public void testFailureSummary() {
+        failKey = "backup/new.txt";
+        assertThatThrownBy(() -> syncService.uploadDirectory("demo", "backup", sourceDir, false, new TransferOptions()))
+                .isInstanceOf(IOException.class)
+                .hasMessage("1 files failed, 3 files uploaded");
+        failKey = "backup/same.txt";
+        assertThatThrownBy(() -> syncService.downloadDirectory("demo", "backup", new File(tempDir, "dest"), false, new TransferOptions()))
+                .isInstanceOf(IOException.class)
+                .hasMessage("1 files failed, 2 files downloaded");
+    }
+
+    /**
+     * add remote object
+     *
+     * @param key  key
+     * @param size size
+     * @param etag ETag
+     */
+    private void addRemoteObject(String key, long size, String etag) {
+        OSSObjectSummary objectSummary = new OSSObjectSummary();
+        objectSummary.setBucketName("demo");
+        objectSummary.setKey(key);
+        objectSummary.setSize(size);
+        objectSummary.setETag(etag);
+        objectSummary.setLastModified(new Date());
+        remoteObjects.add(objectSummary);
+    }
+
+    /**
+     * create file with content
+     *
+     * @param path    relative path
+     * @param content content
+     * @return file
+     * @throws Exception exception
+     */
+    private File createFile(String path, String content) throws Exception {
+        File file = new File(tempDir, path);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
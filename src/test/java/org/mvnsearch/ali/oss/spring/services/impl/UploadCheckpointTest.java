@@ -0,0 +1,70 @@
+package org.mvnsearch.ali.oss.spring.services.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * upload checkpoint test
+ *
+ * @author linux_china
+ */
+public class UploadCheckpointTest {
+    /**
+     * temp directory
+     */
+    @TempDir
+    File tempDir;
+
+    /**
+     * test upload id restored after load and validated with source file stat
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testResume() throws Exception {
+        File sourceFile = new File(tempDir, "demo.bin");
+        Files.write(sourceFile.toPath(), new byte[1000]);
+        File checkpointFile = UploadCheckpoint.getCheckpointFile(new File(tempDir, "checkpoints"), sourceFile, new OSSUri("oss://demo/demo.bin"));
+        new UploadCheckpoint(checkpointFile).start("upload1", sourceFile, 100);
+        UploadCheckpoint loaded = new UploadCheckpoint(checkpointFile);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.getUploadId()).isEqualTo("upload1");
+        assertThat(loaded.isValidFor(sourceFile, 100)).isTrue();
+        assertThat(loaded.isValidFor(sourceFile, 200)).isFalse();
+        assertThat(sourceFile.setLastModified(sourceFile.lastModified() - 10000)).isTrue();
+        assertThat(loaded.isValidFor(sourceFile, 100)).isFalse();
+        loaded.delete();
+        assertThat(new UploadCheckpoint(checkpointFile).load()).isFalse();
+    }
+
+    /**
+     * test checkpoint file per source file and dest object
+     */
+    @Test
+    public void testCheckpointFile() {
+        File sourceFile = new File(tempDir, "demo.bin");
+        File first = UploadCheckpoint.getCheckpointFile(tempDir, sourceFile, new OSSUri("oss://demo/a.bin"));
+        File second = UploadCheckpoint.getCheckpointFile(tempDir, sourceFile, new OSSUri("oss://demo/b.bin"));
+        assertThat(first).isNotEqualTo(second);
+        assertThat(first).isEqualTo(UploadCheckpoint.getCheckpointFile(tempDir, sourceFile, new OSSUri("oss://demo/a.bin")));
+    }
+
+    /**
+     * test broken checkpoint file ignored
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testBroken() throws Exception {
+        File checkpointFile = new File(tempDir, "broken.upload");
+        Files.write(checkpointFile.toPath(), "uploadId=upload1\npartSize=abc\n".getBytes(StandardCharsets.UTF_8));
+        assertThat(new UploadCheckpoint(checkpointFile).load()).isFalse();
+    }
+}
@@ -0,0 +1,144 @@
+package org.mvnsearch.ali.oss.spring.shell.commands;
+
+import com.aliyun.oss.model.OSSObjectSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mvnsearch.ali.oss.spring.services.AliyunOssService;
+import org.mvnsearch.ali.oss.spring.services.ListingCache;
+import org.mvnsearch.ali.oss.spring.services.OSSUri;
+import org.mvnsearch.ali.oss.spring.shell.converters.ObjectKey;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * prefix copy and move commands test with stub service
+ *
+ * @author linux_china
+ */
+public class OssCopyCommandsTest {
+    /**
+     * source keys in bucket
+     */
+    private final List<String> keys = List.of("logs/2023-01/a.txt", "logs/2023-02/b.txt", "logs/other.txt");
+    /**
+     * copied objects: dest uri to source uri
+     */
+    private final Map<String, String> copied = new ConcurrentHashMap<>();
+    /**
+     * deleted keys
+     */
+    private final List<String> deleted = new CopyOnWriteArrayList<>();
+    /**
+     * oss operation commands
+     */
+    private OssOperationCommands commands;
+
+    /**
+     * setup commands with stub service
+     */
+    @BeforeEach
+    public void setUp() {
+        AliyunOssService aliyunOssService = (AliyunOssService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AliyunOssService.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "listAll":
+                            AliyunOssService.ObjectSummaryConsumer consumer = (AliyunOssService.ObjectSummaryConsumer) args[3];
+                            for (String key : keys) {
+                                if (key.startsWith((String) args[1])) {
+                                    OSSObjectSummary objectSummary = new OSSObjectSummary();
+                                    objectSummary.setBucketName((String) args[0]);
+                                    objectSummary.setKey(key);
+                                    objectSummary.setSize(10);
+                                    consumer.accept(objectSummary);
+                                }
+                            }
+                            return null;
+                        case "copy":
+                            copied.put(args[1].toString(), args[0].toString());
+                            return "ETAG";
+                        case "delete":
+                            @SuppressWarnings("unchecked") List<String> batch = (List<String>) args[1];
+                            deleted.addAll(batch);
+                            return batch.size();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        ListingCache listingCache = (ListingCache) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ListingCache.class}, (proxy, method, args) -> null);
+        commands = new OssOperationCommands();
+        commands.setAliyunOssService(aliyunOssService);
+        commands.setListingCache(listingCache);
+        OssOperationCommands.currentBucket = new OSSUri("bucket", null);
+    }
+
+    /**
+     * reset current bucket
+     */
+    @AfterEach
+    public void tearDown() {
+        OssOperationCommands.currentBucket = null;
+    }
+
+    /**
+     * test keys are copied relative to the virtual directory of source prefix
+     */
+    @Test
+    public void testCopyPrefix() {
+        commands.cp(new ObjectKey("logs/2023*"), "backup");
+        assertThat(copied).containsOnly(
+                Map.entry("oss://bucket/backup/2023-01/a.txt", "oss://bucket/logs/2023-01/a.txt"),
+                Map.entry("oss://bucket/backup/2023-02/b.txt", "oss://bucket/logs/2023-02/b.txt"));
+        assertThat(deleted).isEmpty();
+    }
+
+    /**
+     * test keys are copied relative to source directory
+     */
+    @Test
+    public void testCopyDirectory() {
+        commands.cp(new ObjectKey("logs/"), "backup/");
+        assertThat(copied).containsOnlyKeys("oss://bucket/backup/2023-01/a.txt",
+                "oss://bucket/backup/2023-02/b.txt", "oss://bucket/backup/other.txt");
+    }
+
+    /**
+     * test dest directory inside source is rejected before listing
+     */
+    @Test
+    public void testDestInsideSource() {
+        assertThat(commands.cp(new ObjectKey("logs/"), "logs/archive")).contains("should not be inside source");
+        assertThat(commands.mv(new ObjectKey("logs/2023*"), "logs/2023-all/")).contains("should not be inside source");
+        assertThat(copied).isEmpty();
+        assertThat(deleted).isEmpty();
+    }
+
+    /**
+     * test moving into the source directory is rejected, otherwise every key is copied onto itself and deleted
+     */
+    @Test
+    public void testMoveIntoSourceDirectory() {
+        assertThat(commands.mv(new ObjectKey("logs/2023*"), "logs/")).contains("should not be same as source directory");
+        assertThat(commands.mv(new ObjectKey("logs/2023*"), "logs")).contains("should not be same as source directory");
+        assertThat(commands.cp(new ObjectKey("*"), "")).contains("should not be same as source directory");
+        assertThat(copied).isEmpty();
+        assertThat(deleted).isEmpty();
+    }
+
+    /**
+     * test moved keys are deleted after copy
+     */
+    @Test
+    public void testMovePrefix() {
+        commands.mv(new ObjectKey("logs/2023*"), "archive/");
+        assertThat(copied).containsOnlyKeys("oss://bucket/archive/2023-01/a.txt", "oss://bucket/archive/2023-02/b.txt");
+        assertThat(deleted).containsExactlyInAnyOrder("logs/2023-01/a.txt", "logs/2023-02/b.txt");
+    }
+}